@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.fstrigger.core;
+
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the content of a file read once by the caller, for a recording or a check of a {@link FSTriggerContentFileType}.
+ * <p>
+ * The content is pushed chunk by chunk with {@link #update}, from the {@link #getStartPosition() start position},
+ * then {@link #complete} is called once.
+ */
+public interface FSTriggerContentConsumer {
+
+    /**
+     * Consumes the remaining bytes of the buffer, the next chunk of the content
+     *
+     * @param content the chunk, only valid during the call
+     * @throws XTriggerException if the content can't be processed
+     */
+    void update(ByteBuffer content) throws XTriggerException;
+
+    /**
+     * @return the position in the file from which the content is needed, 0 by default
+     */
+    default long getStartPosition() {
+        return 0L;
+    }
+
+    /**
+     * @return true when the rest of the content is not needed
+     */
+    boolean isDone();
+
+    /**
+     * Completes the recording or the check, after the whole content has been pushed or once the consumer is done
+     *
+     * @return for a check, true if a build must be triggered; false for a recording
+     * @throws XTriggerException if the recording or the check fails
+     */
+    boolean complete() throws XTriggerException;
+}
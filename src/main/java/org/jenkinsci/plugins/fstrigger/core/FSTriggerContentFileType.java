@@ -6,9 +6,11 @@ import hudson.model.Descriptor;
 import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.File;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 /**
  * @author Gregory Boissinot
@@ -21,6 +23,38 @@ public abstract class FSTriggerContentFileType implements ExtensionPoint, Descri
      */
     protected transient String jobName;
 
+    /**
+     * GUI field
+     * True for inspecting the contents at each poll, for file systems where the modification date is not reliable
+     */
+    private boolean alwaysInspectContent;
+
+    /**
+     * The stat of the file when the memory information has been recorded, null if unknown
+     */
+    private transient FSTriggerFileStat fileStat;
+
+    @SuppressWarnings("unused")
+    public boolean isAlwaysInspectContent() {
+        return alwaysInspectContent;
+    }
+
+    @DataBoundSetter
+    public void setAlwaysInspectContent(boolean alwaysInspectContent) {
+        this.alwaysInspectContent = alwaysInspectContent;
+    }
+
+    /**
+     * Used by caller trigger for transferring the stat of the file with the memory information
+     */
+    public FSTriggerFileStat getFileStat() {
+        return fileStat;
+    }
+
+    public void setFileStat(FSTriggerFileStat fileStat) {
+        this.fileStat = fileStat;
+    }
+
     /**
      * Called by the caller trigger for refreshing memory information
      *
@@ -30,15 +64,33 @@ public abstract class FSTriggerContentFileType implements ExtensionPoint, Descri
      */
     public void initMemoryFields(String jobName, File file) throws XTriggerException {
         this.jobName = jobName;
+        checkFile(file);
+        initForContent(file);
+    }
 
-        if (file == null) {
-            throw new NullPointerException("The given file input reference is not set.");
-        }
-        if (!file.exists()) {
-            throw new XTriggerException(String.format("The given file '%s' doesn't exist.", file));
-        }
+    /**
+     * Called by the caller trigger for refreshing memory information from the content it reads
+     *
+     * @param jobName the current job name
+     * @param file    the current file to inspect
+     * @return the consumer of the content, already done when the type reads the file by itself
+     * @throws XTriggerException
+     */
+    public FSTriggerContentConsumer startInitMemoryFields(String jobName, final File file) throws XTriggerException {
+        this.jobName = jobName;
+        checkFile(file);
 
-        initForContent(file);
+        FSTriggerContentConsumer consumer = newInitConsumer(file);
+        if (consumer != null) {
+            return consumer;
+        }
+        return new FileContentAdapter() {
+            @Override
+            public boolean complete() throws XTriggerException {
+                initForContent(file);
+                return false;
+            }
+        };
     }
 
 
@@ -51,15 +103,72 @@ public abstract class FSTriggerContentFileType implements ExtensionPoint, Descri
      * @throws XTriggerException
      */
     public boolean isTriggeringBuild(File file, XTriggerLog log) throws XTriggerException {
+        checkFile(file);
+        if (isUnchanged(file, log)) {
+            return false;
+        }
+        return isTriggeringBuildForContent(file, log);
+    }
+
+    /**
+     * Called by the caller trigger for checking if there is a change in the content it reads
+     *
+     * @param file the current file to check
+     * @param log  the log object
+     * @return the consumer of the content, already done when the type reads the file by itself
+     * @throws XTriggerException
+     */
+    public FSTriggerContentConsumer startTriggeringBuildCheck(final File file, final XTriggerLog log) throws XTriggerException {
+        checkFile(file);
+        if (isUnchanged(file, log)) {
+            return new FileContentAdapter() {
+                @Override
+                public boolean complete() {
+                    return false;
+                }
+            };
+        }
 
+        FSTriggerContentConsumer consumer = newCheckConsumer(file, log);
+        if (consumer != null) {
+            return consumer;
+        }
+        return new FileContentAdapter() {
+            @Override
+            public boolean complete() throws XTriggerException {
+                return isTriggeringBuildForContent(file, log);
+            }
+        };
+    }
+
+    private void checkFile(File file) throws XTriggerException {
         if (file == null) {
             throw new NullPointerException("The given file input reference is not set.");
         }
         if (!file.exists()) {
             throw new XTriggerException(String.format("The given file '%s' doesn't exist.", file));
         }
+    }
 
-        return isTriggeringBuildForContent(file, log);
+    /**
+     * The contents are not inspected again when the size, modification date and identity of the file are unchanged
+     */
+    private boolean isUnchanged(File file, XTriggerLog log) {
+        if (!alwaysInspectContent && isFileStatGateSupported() && fileStat != null && fileStat.equals(FSTriggerFileStat.of(file))) {
+            log.info(String.format("The file '%s' is unchanged since the previous poll (%s).", file, fileStat));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if an unchanged file can be considered as not triggering a build without inspecting its contents.
+     * The types that trigger a build on the current contents, and not on a change of the contents, have to return false.
+     *
+     * @return true by default
+     */
+    protected boolean isFileStatGateSupported() {
+        return true;
     }
 
     public Descriptor<FSTriggerContentFileType> getDescriptor() {
@@ -74,6 +183,45 @@ public abstract class FSTriggerContentFileType implements ExtensionPoint, Descri
 
     protected abstract boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException;
 
+    /**
+     * Creates a consumer recording the memory information from the content read by the caller.
+     * The types that can't process their content incrementally keep the default, and read the file by themselves.
+     *
+     * @param file the current file, for the log
+     * @return the consumer, null by default
+     * @throws XTriggerException
+     */
+    protected FSTriggerContentConsumer newInitConsumer(File file) throws XTriggerException {
+        return null;
+    }
+
+    /**
+     * Creates a consumer checking the content read by the caller against the memory information
+     *
+     * @param file the current file, for the log
+     * @param log  the log object
+     * @return the consumer, null by default
+     * @throws XTriggerException
+     */
+    protected FSTriggerContentConsumer newCheckConsumer(File file, XTriggerLog log) throws XTriggerException {
+        return null;
+    }
+
+    /**
+     * Adapts a type reading the file by itself: the content is not needed, the file is read on completion
+     */
+    private abstract static class FileContentAdapter implements FSTriggerContentConsumer {
+
+        @Override
+        public void update(ByteBuffer content) {
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+    }
+
 
     /**
      * Used by caller trigger for transferring objects between objects
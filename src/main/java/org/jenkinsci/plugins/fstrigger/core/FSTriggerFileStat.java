@@ -0,0 +1,79 @@
+package org.jenkinsci.plugins.fstrigger.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * The size, modification date and identity (the inode on Unix) of a file.
+ * <p>
+ * A file with the same stat as at the previous poll is considered unchanged, its contents are not inspected again.
+ */
+public class FSTriggerFileStat implements Serializable {
+
+    private final long size;
+
+    private final long lastModified;
+
+    /**
+     * The identity of the file, null when the file system doesn't provide one
+     */
+    private final String fileKey;
+
+    public FSTriggerFileStat(long size, long lastModified, String fileKey) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Reads the stat of a file
+     *
+     * @param file the file
+     * @return the stat, null if it can't be read
+     */
+    public static FSTriggerFileStat of(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+            return new FSTriggerFileStat(attributes.size(), attributes.lastModifiedTime().toMillis(), (fileKey == null) ? null : fileKey.toString());
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FSTriggerFileStat that = (FSTriggerFileStat) o;
+        return size == that.size && lastModified == that.lastModified && Objects.equals(fileKey, that.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, fileKey);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d, lastModified=%d, fileKey=%s", size, lastModified, fileKey);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
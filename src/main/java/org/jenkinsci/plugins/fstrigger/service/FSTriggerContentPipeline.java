@@ -0,0 +1,124 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentConsumer;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Inspects a file with several content types while reading it once.
+ * <p>
+ * The file is read into a direct buffer of the {@link FSTriggerFileHasher} pool, from the first position needed,
+ * and each chunk is pushed to the {@link FSTriggerContentConsumer} of every content type. The types reading the file
+ * by themselves are adapted by consumers that don't need the content; the file is not read at all when no type needs it.
+ */
+public class FSTriggerContentPipeline {
+
+    private FSTriggerContentPipeline() {
+    }
+
+    /**
+     * Records the memory information of the content types
+     *
+     * @param types   the content types
+     * @param jobName the current job name
+     * @param file    the current file
+     * @throws XTriggerException if a content type can't record its memory information
+     */
+    public static void initMemoryFields(FSTriggerContentFileType[] types, String jobName, File file) throws XTriggerException {
+        FSTriggerContentConsumer[] consumers = new FSTriggerContentConsumer[types.length];
+        for (int i = 0; i < types.length; i++) {
+            consumers[i] = types[i].startInitMemoryFields(jobName, file);
+        }
+        feed(file, consumers);
+        for (FSTriggerContentConsumer consumer : consumers) {
+            consumer.complete();
+        }
+    }
+
+    /**
+     * Checks the content types in their order, until one of them triggers a build
+     *
+     * @param types the content types, with the memory information of the previous poll
+     * @param file  the current file
+     * @param log   the log object
+     * @return true if a content type triggers a build
+     * @throws XTriggerException if a content type can't check the file
+     */
+    public static boolean isTriggeringBuild(FSTriggerContentFileType[] types, File file, XTriggerLog log) throws XTriggerException {
+        FSTriggerContentConsumer[] consumers = new FSTriggerContentConsumer[types.length];
+        for (int i = 0; i < types.length; i++) {
+            consumers[i] = types[i].startTriggeringBuildCheck(file, log);
+        }
+        feed(file, consumers);
+        for (FSTriggerContentConsumer consumer : consumers) {
+            if (consumer.complete()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the file once and pushes its content to the consumers, until all of them are done
+     *
+     * @param file      the file
+     * @param consumers the consumers, they are not completed
+     * @throws XTriggerException if the file can't be read or a consumer fails
+     */
+    public static void feed(File file, FSTriggerContentConsumer... consumers) throws XTriggerException {
+        if (isDone(consumers)) {
+            return;
+        }
+        //The file is read from the first position needed
+        long position = Long.MAX_VALUE;
+        for (FSTriggerContentConsumer consumer : consumers) {
+            if (!consumer.isDone()) {
+                position = Math.min(position, consumer.getStartPosition());
+            }
+        }
+
+        ByteBuffer buffer = FSTriggerFileHasher.acquireBuffer();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.position(position);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                long end = position + buffer.remaining();
+                for (FSTriggerContentConsumer consumer : consumers) {
+                    long startPosition = consumer.getStartPosition();
+                    if (!consumer.isDone() && startPosition < end) {
+                        ByteBuffer chunk = buffer.duplicate();
+                        if (startPosition > position) {
+                            chunk.position((int) (startPosition - position));
+                        }
+                        consumer.update(chunk);
+                    }
+                }
+                if (isDone(consumers)) {
+                    return;
+                }
+                position = end;
+                buffer.clear();
+            }
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        } finally {
+            FSTriggerFileHasher.releaseBuffer(buffer);
+        }
+    }
+
+    private static boolean isDone(FSTriggerContentConsumer[] consumers) {
+        for (FSTriggerContentConsumer consumer : consumers) {
+            if (!consumer.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A running digest of a content, created by a {@link FSTriggerDigestAlgorithm}
+ */
+public interface FSTriggerDigest {
+
+    void update(byte[] input, int offset, int length);
+
+    /**
+     * Consumes the remaining bytes of the buffer
+     */
+    void update(ByteBuffer input);
+
+    /**
+     * Completes the digest, the object can't be used afterwards
+     *
+     * @return the digest bytes
+     */
+    byte[] digest();
+}
@@ -0,0 +1,164 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32C;
+
+/**
+ * The algorithms available for computing the digest of a content.
+ * <p>
+ * The digests are only used for detecting changes, so the non-cryptographic hashes are a faster alternative to MD5.
+ * Each algorithm has an identifier that is stored with the recorded digests:
+ * digests computed with different algorithms can't be compared.
+ */
+public enum FSTriggerDigestAlgorithm {
+
+    MD5("MD5", "MD5") {
+        @Override
+        public FSTriggerDigest newDigest() {
+            return new MessageDigestAdapter("MD5");
+        }
+    },
+
+    SHA_256("SHA-256", "SHA-256") {
+        @Override
+        public FSTriggerDigest newDigest() {
+            return new MessageDigestAdapter("SHA-256");
+        }
+    },
+
+    CRC32C("CRC32C", "CRC32C (fast, 32 bits)") {
+        @Override
+        public FSTriggerDigest newDigest() {
+            return new CRC32CAdapter();
+        }
+    },
+
+    XXHASH64("XXHASH64", "xxHash64 (fast, 64 bits)") {
+        @Override
+        public FSTriggerDigest newDigest() {
+            return new FSTriggerXXHash64();
+        }
+    };
+
+    /**
+     * The algorithm used when none is configured, it gives the same digests as the previous versions
+     */
+    public static final FSTriggerDigestAlgorithm DEFAULT = MD5;
+
+    private final String id;
+
+    private final String displayName;
+
+    FSTriggerDigestAlgorithm(String id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public abstract FSTriggerDigest newDigest();
+
+    /**
+     * Gets an algorithm from its identifier
+     *
+     * @param id the identifier, null for the default algorithm
+     * @return the algorithm
+     * @throws IllegalArgumentException if the identifier is unknown
+     */
+    public static FSTriggerDigestAlgorithm get(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return DEFAULT;
+        }
+        for (FSTriggerDigestAlgorithm algorithm : values()) {
+            if (algorithm.id.equalsIgnoreCase(id.trim())) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException(String.format("The digest algorithm '%s' is not supported.", id));
+    }
+
+    /**
+     * Computes the digest of a stream
+     *
+     * @param input the stream, read until its end
+     * @return the digest as a lowercase hexadecimal string
+     * @throws IOException if the stream can't be read
+     */
+    public String digest(InputStream input) throws IOException {
+        FSTriggerDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static class MessageDigestAdapter implements FSTriggerDigest {
+
+        private final MessageDigest md;
+
+        MessageDigestAdapter(String algorithm) {
+            try {
+                md = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void update(byte[] input, int offset, int length) {
+            md.update(input, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer input) {
+            md.update(input);
+        }
+
+        @Override
+        public byte[] digest() {
+            return md.digest();
+        }
+    }
+
+    private static class CRC32CAdapter implements FSTriggerDigest {
+
+        private final CRC32C crc = new CRC32C();
+
+        @Override
+        public void update(byte[] input, int offset, int length) {
+            crc.update(input, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer input) {
+            crc.update(input);
+        }
+
+        @Override
+        public byte[] digest() {
+            long value = crc.getValue();
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Computer;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+import jenkins.model.Jenkins;
+import org.jenkinsci.lib.envinject.EnvInjectException;
+import org.jenkinsci.plugins.envinjectapi.util.EnvVarsResolver;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the polling environment variables of a job on a node.
+ * <p>
+ * Resolving them walks the node properties and the global configuration, and may call the node.
+ * The entries of a job or a node are evicted when its configuration is saved or when the node reconnects,
+ * the entries of a job are also evicted when one of its builds is finalized or deleted, the variables injected
+ * into the last build being part of the polling variables.
+ * all the entries are evicted when the global configuration is saved or the nodes change,
+ * and an entry expires after a maximum age for the values that don't come from a configuration.
+ */
+public class FSTriggerEnvVarsCache {
+
+    /**
+     * System property giving the maximum age in milliseconds of a cached entry, 0 disables the cache
+     */
+    public static final String MAX_AGE_PROPERTY = FSTriggerEnvVarsCache.class.getName() + ".maxAge";
+
+    private static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each eviction, an entry resolved during an eviction is not recorded
+     */
+    private static final AtomicLong CONFIG_VERSION = new AtomicLong();
+
+    /**
+     * Resolves the environment variables of a cache miss
+     */
+    interface Resolver {
+
+        Map<String, String> resolve() throws EnvInjectException;
+    }
+
+    private static class Entry {
+
+        private final String jobName;
+
+        private final String nodeName;
+
+        private final Map<String, String> envVars;
+
+        private final long creationTime;
+
+        Entry(String jobName, String nodeName, Map<String, String> envVars, long creationTime) {
+            this.jobName = jobName;
+            this.nodeName = nodeName;
+            this.envVars = envVars;
+            this.creationTime = creationTime;
+        }
+    }
+
+    private FSTriggerEnvVarsCache() {
+    }
+
+    /**
+     * Gets the polling environment variables of a job on a node
+     *
+     * @param job  the job
+     * @param node the polling node
+     * @return the environment variables, not modifiable
+     * @throws EnvInjectException if the variables can't be resolved
+     */
+    public static Map<String, String> getPollingEnvVars(Job job, Node node) throws EnvInjectException {
+        return get(job.getFullName(), (node == null) ? "" : node.getNodeName(), () -> EnvVarsResolver.getPollingEnvVars(job, node));
+    }
+
+    static Map<String, String> get(String jobName, String nodeName, Resolver resolver) throws EnvInjectException {
+        long maxAge = Long.getLong(MAX_AGE_PROPERTY, DEFAULT_MAX_AGE);
+        if (maxAge <= 0) {
+            return Collections.unmodifiableMap(new HashMap<>(resolver.resolve()));
+        }
+
+        String key = jobName + '|' + nodeName;
+        long now = System.currentTimeMillis();
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && now - entry.creationTime <= maxAge) {
+            return entry.envVars;
+        }
+
+        //The version is read before the resolution, an eviction during the resolution makes the result stale
+        long configVersion = CONFIG_VERSION.get();
+        Map<String, String> envVars = Collections.unmodifiableMap(new HashMap<>(resolver.resolve()));
+        Entry newEntry = new Entry(jobName, nodeName, envVars, now);
+        ENTRIES.put(key, newEntry);
+        if (CONFIG_VERSION.get() != configVersion) {
+            ENTRIES.remove(key, newEntry);
+        }
+        return envVars;
+    }
+
+    /**
+     * Forgets all the cached entries
+     */
+    public static void invalidate() {
+        CONFIG_VERSION.incrementAndGet();
+        ENTRIES.clear();
+    }
+
+    /**
+     * Forgets the entries of a job, or of all the jobs of a folder
+     *
+     * @param itemName the full name of the job or the folder
+     */
+    public static void invalidateItem(String itemName) {
+        CONFIG_VERSION.incrementAndGet();
+        ENTRIES.values().removeIf(entry -> entry.jobName.equals(itemName) || entry.jobName.startsWith(itemName + '/'));
+    }
+
+    /**
+     * Forgets the entries of a node
+     *
+     * @param nodeName the name of the node, empty for the built-in node
+     */
+    public static void invalidateNode(String nodeName) {
+        CONFIG_VERSION.incrementAndGet();
+        ENTRIES.values().removeIf(entry -> entry.nodeName.equals(nodeName));
+    }
+
+    /**
+     * Only the configurations the variables come from are considered, the builds are handled by {@link BuildListener}
+     */
+    @Extension
+    @SuppressWarnings("unused")
+    public static class ConfigurationListener extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Jenkins) {
+                invalidate();
+            } else if (o instanceof Job) {
+                invalidateItem(((Job) o).getFullName());
+            } else if (o instanceof Node) {
+                invalidateNode(((Node) o).getNodeName());
+            }
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class JobListener extends ItemListener {
+
+        @Override
+        public void onUpdated(Item item) {
+            invalidateItem(item.getFullName());
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            invalidateItem(item.getFullName());
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class BuildListener extends RunListener<Run> {
+
+        @Override
+        public void onFinalized(Run run) {
+            invalidateItem(run.getParent().getFullName());
+        }
+
+        @Override
+        public void onDeleted(Run run) {
+            invalidateItem(run.getParent().getFullName());
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class NodeListener extends ComputerListener {
+
+        @Override
+        public void onConfigurationChange() {
+            invalidate();
+        }
+
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            invalidateNode(c.getName());
+        }
+
+        @Override
+        public void onOffline(Computer c, OfflineCause cause) {
+            invalidateNode(c.getName());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the digest of a file through a {@link FileChannel}.
+ * <p>
+ * The small files are read into direct buffers taken from a pool shared by the threads of the node,
+ * the files above a size threshold are memory-mapped. In both cases the digest is fed directly from the buffer,
+ * without copying the content to the heap.
+ * When a {@link FSTriggerSampledFingerprint} is given, only sampled ranges of the large files are read.
+ */
+public class FSTriggerFileHasher {
+
+    /**
+     * System property giving the size in bytes from which the files are memory-mapped
+     */
+    public static final String MMAP_THRESHOLD_PROPERTY = FSTriggerFileHasher.class.getName() + ".mmapThreshold";
+
+    private static final long DEFAULT_MMAP_THRESHOLD = 16L * 1024 * 1024;
+
+    /**
+     * Maximum size of a single mapping
+     */
+    private static final long MAX_MAPPING_SIZE = 256L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    private static final ConcurrentLinkedDeque<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedDeque<>();
+
+    private static final AtomicInteger POOLED_BUFFERS = new AtomicInteger();
+
+    private FSTriggerFileHasher() {
+    }
+
+    /**
+     * Computes the digest of a file
+     *
+     * @param file      the file
+     * @param algorithm the digest algorithm
+     * @return the digest as a lowercase hexadecimal string
+     * @throws IOException if the file can't be read
+     */
+    public static String digest(File file, FSTriggerDigestAlgorithm algorithm) throws IOException {
+        return digest(file, algorithm, null);
+    }
+
+    /**
+     * Computes the digest of a file, or its sampled fingerprint when the file is large enough
+     *
+     * @param file      the file
+     * @param algorithm the digest algorithm
+     * @param sampling  the settings of the sampled fingerprint, null for always digesting the whole content
+     * @return the digest as a lowercase hexadecimal string
+     * @throws IOException if the file can't be read
+     */
+    public static String digest(File file, FSTriggerDigestAlgorithm algorithm, FSTriggerSampledFingerprint sampling) throws IOException {
+        FSTriggerDigest digest = algorithm.newDigest();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (sampling != null && sampling.isSampled(size)) {
+                digestSampled(channel, size, sampling, digest);
+            } else if (size >= getMmapThreshold()) {
+                digestMapped(channel, size, digest);
+            } else {
+                digestBuffered(channel, digest);
+            }
+        }
+        return FSTriggerDigestAlgorithm.toHex(digest.digest());
+    }
+
+    private static long getMmapThreshold() {
+        return Long.getLong(MMAP_THRESHOLD_PROPERTY, DEFAULT_MMAP_THRESHOLD);
+    }
+
+    private static void digestSampled(FileChannel channel, long size, FSTriggerSampledFingerprint sampling, FSTriggerDigest digest) throws IOException {
+        ByteBuffer sizeBuffer = ByteBuffer.allocate(Long.BYTES).putLong(0, size);
+        digest.update(sizeBuffer);
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            digestRange(channel, 0, sampling.getEdgeSize(), buffer, digest);
+            for (int i = 0; i < sampling.getSampleCount(); i++) {
+                digestRange(channel, sampling.getBlockPosition(size, i), sampling.getBlockSize(), buffer, digest);
+            }
+            digestRange(channel, size - sampling.getEdgeSize(), sampling.getEdgeSize(), buffer, digest);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    static void digestRange(FileChannel channel, long position, long length, ByteBuffer buffer, FSTriggerDigest digest) throws IOException {
+        long end = position + length;
+        while (position < end) {
+            buffer.clear();
+            if (end - position < buffer.capacity()) {
+                buffer.limit((int) (end - position));
+            }
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new IOException("The file has changed while computing its digest.");
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+
+    private static void digestMapped(FileChannel channel, long size, FSTriggerDigest digest) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long length = Math.min(MAX_MAPPING_SIZE, size - position);
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            try {
+                digest.update(mapping);
+            } catch (InternalError e) {
+                //The file has been truncated while being read
+                throw new IOException("The file has changed while computing its digest.", e);
+            }
+            position += length;
+        }
+        //The file may have grown since the size was read
+        if (channel.size() > size) {
+            channel.position(size);
+            digestBuffered(channel, digest);
+        }
+    }
+
+    private static void digestBuffered(FileChannel channel, FSTriggerDigest digest) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFER_POOL.pollFirst();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        POOLED_BUFFERS.decrementAndGet();
+        return buffer;
+    }
+
+    static void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        if (POOLED_BUFFERS.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            BUFFER_POOL.offerFirst(buffer);
+        } else {
+            POOLED_BUFFERS.decrementAndGet();
+        }
+    }
+}
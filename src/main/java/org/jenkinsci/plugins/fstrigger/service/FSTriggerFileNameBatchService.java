@@ -0,0 +1,427 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import hudson.FilePath;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+import org.jenkinsci.plugins.fstrigger.triggers.FileNameTrigger;
+import org.jenkinsci.plugins.fstrigger.triggers.FileNameTriggerInfo;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Evaluates all the file entries of a trigger with a single call to the polling node.
+ * <p>
+ * For each entry, the file is resolved, compared with the file of the previous poll, its content is checked,
+ * and the memory information of the content types is computed for the next poll.
+ * The content types of an entry share a single read of the file, through {@link FSTriggerContentPipeline}.
+ * Once a change has been found, the next entries are only resolved and refreshed.
+ * With the {@link FileNameTrigger#STRATEGY_ALL} strategy, all the matching files of an entry are checked in the same call,
+ * and the content types are only initialized again for the files that are new or changed.
+ */
+public class FSTriggerFileNameBatchService {
+
+    /**
+     * The result of the evaluation of an entry
+     */
+    public static class EntryResult implements Serializable {
+
+        private final FilePath resolvedFile;
+
+        private final long lastModified;
+
+        private final Object[] memoryInfos;
+
+        private final FSTriggerFileStat fileStat;
+
+        private final FSTriggerMonitoredFiles monitoredFiles;
+
+        private final boolean changed;
+
+        private final boolean updated;
+
+        EntryResult(FilePath resolvedFile, long lastModified, Object[] memoryInfos, FSTriggerFileStat fileStat, boolean changed, boolean updated) {
+            this.resolvedFile = resolvedFile;
+            this.lastModified = lastModified;
+            this.memoryInfos = memoryInfos;
+            this.fileStat = fileStat;
+            this.monitoredFiles = null;
+            this.changed = changed;
+            this.updated = updated;
+        }
+
+        EntryResult(FSTriggerMonitoredFiles monitoredFiles, boolean changed, boolean updated) {
+            this.resolvedFile = null;
+            this.lastModified = 0L;
+            this.memoryInfos = null;
+            this.fileStat = null;
+            this.monitoredFiles = monitoredFiles;
+            this.changed = changed;
+            this.updated = updated;
+        }
+
+        /**
+         * @return the resolved file, null if there is no matching file
+         */
+        public FilePath getResolvedFile() {
+            return resolvedFile;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the memory information of each content type for the resolved file, null if the content is not inspected
+         */
+        public Object[] getMemoryInfos() {
+            return memoryInfos;
+        }
+
+        /**
+         * @return the stat of the resolved file the memory information has been recorded for, null if the content is not inspected
+         */
+        public FSTriggerFileStat getFileStat() {
+            return fileStat;
+        }
+
+        /**
+         * @return the state of all the matching files, for the strategy monitoring all of them
+         */
+        public FSTriggerMonitoredFiles getMonitoredFiles() {
+            return monitoredFiles;
+        }
+
+        /**
+         * @return true if the entry has changed since the previous poll
+         */
+        public boolean isChanged() {
+            return changed;
+        }
+
+        /**
+         * @return true if the recorded state of the entry differs from the one of the previous poll
+         */
+        public boolean isUpdated() {
+            return updated;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Evaluates the entries
+     *
+     * @param node      the polling node
+     * @param context   the context of the poll, for the environment variables of the patterns
+     * @param jobName   the job name given to the content types, null for not computing the memory information
+     * @param fileInfos the entries, with the resolved files and memory information of the previous poll
+     * @param compare   false for only resolving the files and computing the memory information
+     * @param log       the polling log
+     * @return the result of each entry, in the order of the entries
+     * @throws XTriggerException if an entry can't be evaluated
+     */
+    public EntryResult[] evaluate(Node node, FSTriggerPollingContext context, String jobName, FileNameTriggerInfo[] fileInfos, boolean compare, XTriggerLog log) throws XTriggerException {
+
+        if (node == null) {
+            throw new XTriggerException("A valid node must be set.");
+        }
+
+        FilePath rootPath = node.getRootPath();
+        if (rootPath == null) {
+            throw new XTriggerException("An online node must be set.");
+        }
+
+        try {
+            return rootPath.act(new EvaluationCallable(jobName, fileInfos, compare, log, context.getEnvVars()));
+        } catch (InterruptedException | IOException e) {
+            throw new XTriggerException(e);
+        }
+    }
+
+    /**
+     * The evaluation on the polling node. It only holds the entries and the state of the previous poll,
+     * so it is serialized without the service.
+     */
+    static class EvaluationCallable extends MasterToSlaveFileCallable<EntryResult[]> {
+
+        private final String jobName;
+
+        private final FileNameTriggerInfo[] fileInfos;
+
+        private final boolean compare;
+
+        private final XTriggerLog log;
+
+        private final Map<String, String> envVars;
+
+        private final String[] previousPaths;
+
+        private final long[] previousLastModifications;
+
+        private final Object[][] previousMemoryInfos;
+
+        private final FSTriggerFileStat[] previousFileStats;
+
+        private final FSTriggerMonitoredFiles[] previousMonitoredFiles;
+
+        EvaluationCallable(String jobName, FileNameTriggerInfo[] fileInfos, boolean compare, XTriggerLog log, Map<String, String> envVars) {
+            this.jobName = jobName;
+            this.fileInfos = fileInfos;
+            this.compare = compare;
+            this.log = log;
+            this.envVars = envVars;
+
+            //The resolved files and memory information are transient, they are sent separately
+            int count = fileInfos.length;
+            this.previousPaths = new String[count];
+            this.previousLastModifications = new long[count];
+            this.previousMemoryInfos = new Object[count][];
+            this.previousFileStats = new FSTriggerFileStat[count];
+            this.previousMonitoredFiles = new FSTriggerMonitoredFiles[count];
+            for (int i = 0; i < count; i++) {
+                FileNameTriggerInfo info = fileInfos[i];
+                previousPaths[i] = (info.getResolvedFile() != null) ? info.getResolvedFile().getRemote() : null;
+                previousLastModifications[i] = info.getLastModifications();
+                previousMonitoredFiles[i] = info.getMonitoredFiles();
+                previousFileStats[i] = info.getFileStat();
+                if (info.isInspectingContentFile()) {
+                    FSTriggerContentFileType[] types = info.getContentFileTypes();
+                    previousMemoryInfos[i] = new Object[types.length];
+                    for (int j = 0; j < types.length; j++) {
+                        previousMemoryInfos[i][j] = (types[j] != null) ? types[j].getMemoryInfo() : null;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public EntryResult[] invoke(File file, VirtualChannel channel) {
+            try {
+                EntryResult[] results = new EntryResult[fileInfos.length];
+                boolean changeFound = !compare;
+                for (int i = 0; i < fileInfos.length; i++) {
+                    if (FileNameTrigger.STRATEGY_ALL.equals(fileInfos[i].getStrategy())) {
+                        results[i] = evaluateAllFilesEntry(fileInfos[i], previousMonitoredFiles[i], !changeFound);
+                    } else {
+                        results[i] = evaluateEntry(fileInfos[i], previousPaths[i], previousLastModifications[i], previousMemoryInfos[i], previousFileStats[i], !changeFound);
+                    }
+                    changeFound |= results[i].isChanged();
+                }
+                return results;
+            } catch (XTriggerException fse) {
+                throw new RuntimeException(fse);
+            }
+        }
+
+        private EntryResult evaluateEntry(FileNameTriggerInfo info, String previousPath, long previousLastModification, Object[] previousMemoryInfo, FSTriggerFileStat previousFileStat, boolean compareEntry) throws XTriggerException {
+            File newResolvedFile = new FSTriggerFileNameRetriever(info, log, envVars).getFile();
+            //The stat is taken before the contents are read, a write during the check is seen at the next poll
+            FSTriggerFileStat fileStat = (newResolvedFile == null) ? null : getFileStat(info, newResolvedFile);
+            boolean changed = compareEntry && isChanged(info, previousPath, previousLastModification, previousMemoryInfo, previousFileStat, newResolvedFile);
+            if (newResolvedFile == null || !newResolvedFile.exists()) {
+                return new EntryResult(null, 0L, null, null, changed, previousPath != null);
+            }
+            //The memory information of an unchanged file is the one of the check, the content types are not initialized again
+            boolean unchanged = compareEntry && !changed && jobName != null
+                    && newResolvedFile.getPath().equals(previousPath) && isComplete(previousMemoryInfo, info);
+            if (unchanged) {
+                long lastModified = newResolvedFile.lastModified();
+                Object[] memoryInfos = getMemoryInfos(info);
+                boolean updated = lastModified != previousLastModification || !Objects.equals(fileStat, previousFileStat)
+                        || !isSameMemoryInfos(previousMemoryInfo, memoryInfos);
+                return new EntryResult(new FilePath(newResolvedFile), lastModified, memoryInfos, fileStat, changed, updated);
+            }
+            return new EntryResult(new FilePath(newResolvedFile), newResolvedFile.lastModified(), initMemoryInfos(info, newResolvedFile), fileStat, changed, true);
+        }
+
+        private EntryResult evaluateAllFilesEntry(FileNameTriggerInfo info, FSTriggerMonitoredFiles previous, boolean compareEntry) throws XTriggerException {
+            List<File> files = new FSTriggerFileNameRetriever(info, log, envVars).getFiles();
+            int count = files.size();
+            String[] paths = new String[count];
+            long[] lastModifications = new long[count];
+            Object[][] memoryInfos = (jobName != null && info.isInspectingContentFile()) ? new Object[count][] : null;
+            FSTriggerFileStat[] fileStats = (memoryInfos != null) ? new FSTriggerFileStat[count] : null;
+
+            boolean comparing = compareEntry;
+            boolean changed = false;
+            if (comparing && count == 0) {
+                log.info("The computed files don't exist.");
+                comparing = false;
+            } else if (comparing && previous == null) {
+                log.info("The files didn't exist for the previous polling and now they exist.");
+                changed = true;
+            }
+
+            boolean updated = previous == null || count != previous.size();
+            int previousFound = 0;
+            for (int i = 0; i < count; i++) {
+                File newFile = files.get(i);
+                paths[i] = newFile.getPath();
+                lastModifications[i] = newFile.lastModified();
+                int previousIndex = (previous == null) ? -1 : previous.indexOf(paths[i]);
+                if (previousIndex >= 0) {
+                    previousFound++;
+                }
+
+                //The memory information of an unchanged file is the one of the check, the content types are not initialized again
+                FSTriggerFileStat fileStat = (memoryInfos != null) ? getFileStat(info, newFile) : null;
+                boolean unchanged = false;
+                if (comparing && !changed) {
+                    if (previousIndex < 0) {
+                        log.info(String.format("The file '%s' is a new matching file.", newFile));
+                        changed = true;
+                    } else {
+                        Object[] previousMemoryInfo = previous.getMemoryInfos(previousIndex);
+                        changed = isChanged(info, paths[i], previous.getLastModification(previousIndex), previousMemoryInfo, previous.getFileStat(previousIndex), newFile);
+                        unchanged = !changed && isComplete(previousMemoryInfo, info);
+                    }
+                }
+
+                if (memoryInfos != null) {
+                    fileStats[i] = fileStat;
+                    memoryInfos[i] = unchanged ? getMemoryInfos(info) : initMemoryInfos(info, newFile);
+                }
+                if (!updated) {
+                    updated = previousIndex != i || lastModifications[i] != previous.getLastModification(previousIndex)
+                            || (memoryInfos != null && !(unchanged && Objects.equals(fileStat, previous.getFileStat(previousIndex))
+                            && isSameMemoryInfos(previous.getMemoryInfos(previousIndex), memoryInfos[i])));
+                }
+            }
+
+            if (comparing && !changed && previousFound < previous.size()) {
+                log.info(String.format("%d previous matching file(s) don't exist anymore.", previous.size() - previousFound));
+                changed = true;
+            }
+
+            return new EntryResult(new FSTriggerMonitoredFiles(paths, lastModifications, memoryInfos, fileStats), changed, updated);
+        }
+
+        /**
+         * Checks that there is a memory information for each content type, so all of them have been checked
+         */
+        private boolean isComplete(Object[] memoryInfo, FileNameTriggerInfo info) {
+            if (!info.isInspectingContentFile()) {
+                return true;
+            }
+            if (memoryInfo == null) {
+                return false;
+            }
+            for (Object memoryObject : memoryInfo) {
+                if (memoryObject == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isSameMemoryInfos(Object[] previousMemoryInfo, Object[] memoryInfo) {
+            if (previousMemoryInfo == null || memoryInfo == null) {
+                return previousMemoryInfo == memoryInfo;
+            }
+            if (previousMemoryInfo.length != memoryInfo.length) {
+                return false;
+            }
+            for (int j = 0; j < memoryInfo.length; j++) {
+                if (!Objects.equals(previousMemoryInfo[j], memoryInfo[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gets the memory information of the content types after a check, a check may record a new one
+         */
+        private Object[] getMemoryInfos(FileNameTriggerInfo info) {
+            if (!info.isInspectingContentFile()) {
+                return null;
+            }
+            FSTriggerContentFileType[] types = info.getContentFileTypes();
+            Object[] memoryInfos = new Object[types.length];
+            for (int j = 0; j < types.length; j++) {
+                if (types[j] != null) {
+                    memoryInfos[j] = types[j].getMemoryInfo();
+                }
+            }
+            return memoryInfos;
+        }
+
+        private boolean isChanged(FileNameTriggerInfo info, String previousPath, long previousLastModification, Object[] previousMemoryInfo, FSTriggerFileStat previousFileStat, File newResolvedFile) throws XTriggerException {
+
+            // Do not trigger a build if the new computed file doesn't exist.
+            if (newResolvedFile == null) {
+                log.info("The computed file doesn't exist.");
+                return false;
+            }
+
+            FSTriggerFileNameCheckedModifiedService service = new FSTriggerFileNameCheckedModifiedService(log, info, previousPath, previousLastModification, newResolvedFile);
+            if (service.checkFileName()) {
+                return true;
+            }
+
+            if (info.isInspectingContentFile()) {
+                log.info("Inspecting the contents of '" + newResolvedFile + "'");
+                //The types are checked in their order up to the first one without memory information, reading the file once
+                FSTriggerContentFileType[] types = info.getContentFileTypes();
+                int checkedCount = 0;
+                while (checkedCount < types.length && previousMemoryInfo != null && previousMemoryInfo[checkedCount] != null) {
+                    types[checkedCount].setMemoryInfo(previousMemoryInfo[checkedCount]);
+                    types[checkedCount].setFileStat(previousFileStat);
+                    checkedCount++;
+                }
+                if (service.checkContentTypes(Arrays.copyOf(types, checkedCount))) {
+                    return true;
+                }
+                if (checkedCount < types.length) {
+                    log.info("No modifications according the given criteria.");
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Reads the stat of a file before its memory information is recorded, so a change during the recording is detected at the next poll
+         */
+        private FSTriggerFileStat getFileStat(FileNameTriggerInfo info, File newResolvedFile) {
+            if (jobName == null || !info.isInspectingContentFile()) {
+                return null;
+            }
+            return FSTriggerFileStat.of(newResolvedFile);
+        }
+
+        private Object[] initMemoryInfos(FileNameTriggerInfo info, File newResolvedFile) throws XTriggerException {
+            if (jobName == null || !info.isInspectingContentFile()) {
+                return null;
+            }
+            FSTriggerContentFileType[] types = info.getContentFileTypes();
+            List<FSTriggerContentFileType> definedTypes = new ArrayList<>(types.length);
+            for (FSTriggerContentFileType type : types) {
+                if (type != null) {
+                    definedTypes.add(type);
+                }
+            }
+            FSTriggerContentPipeline.initMemoryFields(definedTypes.toArray(new FSTriggerContentFileType[0]), jobName, newResolvedFile);
+            Object[] memoryInfos = new Object[types.length];
+            for (int j = 0; j < types.length; j++) {
+                if (types[j] != null) {
+                    memoryInfos[j] = types[j].getMemoryInfo();
+                }
+            }
+            return memoryInfos;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
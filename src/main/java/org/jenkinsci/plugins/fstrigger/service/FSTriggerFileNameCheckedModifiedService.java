@@ -75,9 +75,11 @@ public class FSTriggerFileNameCheckedModifiedService {
         return false;
     }
 
-
-    public Boolean checkContentType(FSTriggerContentFileType type) throws XTriggerException {
-        return type.isTriggeringBuild(newResolvedFile, log);
+    /**
+     * Checks the content types in their order, reading the file once for all of them
+     */
+    public Boolean checkContentTypes(FSTriggerContentFileType[] types) throws XTriggerException {
+        return FSTriggerContentPipeline.isTriggeringBuild(types, newResolvedFile, log);
     }
 
 
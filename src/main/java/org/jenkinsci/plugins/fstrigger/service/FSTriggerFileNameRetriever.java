@@ -1,17 +1,20 @@
 package org.jenkinsci.plugins.fstrigger.service;
 
 import hudson.Util;
-import org.apache.tools.ant.types.FileSet;
-import org.apache.tools.ant.types.resources.FileResource;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 import org.jenkinsci.plugins.fstrigger.triggers.FileNameTrigger;
 import org.jenkinsci.plugins.fstrigger.triggers.FileNameTriggerInfo;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Iterator;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.regex.Matcher;
 
 
@@ -54,59 +57,207 @@ public class FSTriggerFileNameRetriever implements Serializable {
         String fileName = extractInfo.getFileNamePattern();
 
         //Tests the existing of the folder
-        File folderPathFile = new File(folder);
-        if (!folderPathFile.exists()) {
-            String msg = String.format("The folder path '%s' doesn't exist.", folder);
-            log.info(msg);
+        File folderPathFile = getExistingFolder(folder);
+        if (folderPathFile == null) {
             return null;
         }
 
-        //Computes all the files
-        FileSet fileSet = Util.createFileSet(folderPathFile, fileName);
-        if (fileSet.size() == 0) {
+        //Selects the file in a single pass over the matching files
+        FileSelector selector = new FileSelector(fileInfo.getStrategy(), fileInfo.getLatestRank());
+        try {
+            new FSTriggerFileScanner(fileName, null).scan(folderPathFile, selector);
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        }
+
+        if (selector.getCount() == 0) {
             log.info(String.format("There is no matching files in the folder '%s' for the fileName '%s'.", folder, fileName));
             return null;
         }
 
-        if (fileSet.size() == 1) {
-            File file = ((FileResource) fileSet.iterator().next()).getFile();
+        if (selector.getCount() == 1) {
+            File file = selector.getFirstFile();
             log.info(String.format("Checking one file: '%s'.", file));
             return file;
         }
 
-        if (fileSet.size() > 1) {
+        log.info(String.format("There is more than one file for the file pattern '%s'.", fileInfo.getFilePathPattern()));
+        String strategy = fileInfo.getStrategy();
+        if (FileNameTrigger.STRATEGY_IGNORE.equals(strategy)) {
+            log.info("According to the checked strategy, the schedule has been ignored.");
+            return null;
+        }
 
-            log.info(String.format("There is more than one file for the file pattern '%s'.", fileInfo.getFilePathPattern()));
-            if (FileNameTrigger.STRATEGY_IGNORE.equals(fileInfo.getStrategy())) {
-                log.info("According to the checked strategy, the schedule has been ignored.");
-                return null;
-            }
+        if (FileNameTrigger.STRATEGY_LATEST.equals(strategy)) {
+            log.info("According to the checked strategy, the latest modified file has been selected for the polling.");
+        } else if (FileNameTrigger.STRATEGY_OLDEST.equals(strategy)) {
+            log.info("According to the checked strategy, the oldest modified file has been selected for the polling.");
+        } else if (FileNameTrigger.STRATEGY_LARGEST.equals(strategy)) {
+            log.info("According to the checked strategy, the largest file has been selected for the polling.");
+        } else if (FileNameTrigger.STRATEGY_NTH_LATEST.equals(strategy)) {
+            log.info(String.format("According to the checked strategy, the latest modified file at rank %d has been selected for the polling.", fileInfo.getLatestRank()));
+        } else {
+            throw new RuntimeException("The strategy '" + strategy + "' is not supported.");
+        }
 
-            if (FileNameTrigger.STRATEGY_LATEST.equals(fileInfo.getStrategy())) {
-                log.info("According to the checked strategy, the latest modified file has been selected for the polling.");
-                File lastModifiedFile = null;
-                for (Iterator it = fileSet.iterator(); it.hasNext(); ) {
-                    FileResource fileResource = (FileResource) it.next();
-                    File curFile = fileResource.getFile();
-                    if ((lastModifiedFile == null)
-                            || ((curFile != null) && curFile.lastModified() > lastModifiedFile.lastModified())) {
-                        lastModifiedFile = curFile;
-                    }
-                }
+        File selectedFile = selector.getSelectedFile();
+        if (selectedFile == null) {
+            log.info(String.format("There are fewer than %d matching files.", fileInfo.getLatestRank()));
+            return null;
+        }
+        log.info(String.format("The selected file to poll is '%s'.", selectedFile.getPath()));
+        return selectedFile;
+    }
 
-                if (lastModifiedFile != null) {
-                    log.info(String.format("The selected file to poll is '%s'.", lastModifiedFile.getPath()));
-                    return lastModifiedFile;
-                }
+    /**
+     * Gets all the matching files, for the strategy monitoring all of them
+     *
+     * @return the matching files sorted by path, empty if there is none
+     * @throws XTriggerException if the folder can't be scanned
+     */
+    public List<File> getFiles() throws XTriggerException {
 
-                return null;
+        if (fileInfo.getFilePathPattern() == null) {
+            log.info("A file pattern must be set.");
+            return Collections.emptyList();
+        }
+
+        FileNameExtractInfo extractInfo = extract(fileInfo.getFilePathPattern());
+        String folder = extractInfo.getRootDir();
+        String fileName = extractInfo.getFileNamePattern();
+
+        File folderPathFile = getExistingFolder(folder);
+        if (folderPathFile == null) {
+            return Collections.emptyList();
+        }
+
+        List<File> files;
+        try {
+            files = new FSTriggerFileScanner(fileName, null).scanFiles(folderPathFile);
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        }
+        if (files.isEmpty()) {
+            log.info(String.format("There is no matching files in the folder '%s' for the fileName '%s'.", folder, fileName));
+            return files;
+        }
+
+        files.sort(Comparator.comparing(File::getPath));
+        log.info(String.format("Checking the %d matching file(s) for the file pattern '%s'.", files.size(), fileInfo.getFilePathPattern()));
+        return files;
+    }
+
+    private File getExistingFolder(String folder) {
+        File folderPathFile = new File(folder);
+        if (!folderPathFile.exists()) {
+            String msg = String.format("The folder path '%s' doesn't exist.", folder);
+            log.info(msg);
+            return null;
+        }
+        return folderPathFile;
+    }
+
+    /**
+     * Counts the matching files and keeps the file selected by a strategy.
+     * The attributes of each file are read once, by the scan.
+     */
+    static class FileSelector implements FSTriggerFileScanner.Visitor {
+
+        private static final Comparator<Candidate> BY_LAST_MODIFIED =
+                Comparator.<Candidate>comparingLong(candidate -> candidate.lastModified).thenComparing(candidate -> candidate.file);
+
+        private final String strategy;
+
+        private final int rank;
+
+        private int count;
+
+        private File firstFile;
+
+        private Candidate selected;
+
+        /**
+         * The latest modified files, the oldest first, for the rank strategy
+         */
+        private final PriorityQueue<Candidate> latestFiles;
+
+        FileSelector(String strategy, int rank) {
+            this.strategy = strategy;
+            this.rank = rank;
+            this.latestFiles = FileNameTrigger.STRATEGY_NTH_LATEST.equals(strategy) ? new PriorityQueue<>(rank, BY_LAST_MODIFIED) : null;
+        }
+
+        @Override
+        public void visitFile(File file, BasicFileAttributes attributes) {
+            count++;
+            if (firstFile == null) {
+                firstFile = file;
+            }
+            if (strategy == null) {
+                return;
             }
+            Candidate candidate = new Candidate(file, attributes.lastModifiedTime().toMillis(), attributes.size());
+            switch (strategy) {
+                case FileNameTrigger.STRATEGY_LATEST:
+                    if (selected == null || candidate.lastModified > selected.lastModified) {
+                        selected = candidate;
+                    }
+                    break;
+                case FileNameTrigger.STRATEGY_OLDEST:
+                    if (selected == null || candidate.lastModified < selected.lastModified) {
+                        selected = candidate;
+                    }
+                    break;
+                case FileNameTrigger.STRATEGY_LARGEST:
+                    if (selected == null || candidate.size > selected.size) {
+                        selected = candidate;
+                    }
+                    break;
+                case FileNameTrigger.STRATEGY_NTH_LATEST:
+                    if (latestFiles.size() < rank) {
+                        latestFiles.add(candidate);
+                    } else if (BY_LAST_MODIFIED.compare(candidate, latestFiles.peek()) > 0) {
+                        latestFiles.poll();
+                        latestFiles.add(candidate);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        int getCount() {
+            return count;
+        }
 
-            throw new RuntimeException("The strategy '" + fileInfo.getStrategy() + "' is not supported.");
+        File getFirstFile() {
+            return firstFile;
+        }
 
+        /**
+         * @return the file selected by the strategy, null if there is none
+         */
+        File getSelectedFile() {
+            if (latestFiles != null) {
+                return (latestFiles.size() < rank) ? null : latestFiles.peek().file;
+            }
+            return (selected == null) ? null : selected.file;
         }
+    }
+
+    private static class Candidate {
 
-        return null;
+        private final File file;
+
+        private final long lastModified;
+
+        private final long size;
+
+        Candidate(File file, long lastModified, long size) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
     }
 
     static class FileNameExtractInfo {
@@ -0,0 +1,344 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.apache.tools.ant.DirectoryScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.regex.Pattern;
+
+/**
+ * Scans a folder tree with the Ant include and exclude patterns of a file set,
+ * as done by {@link hudson.Util#createFileSet(File, String, String)}.
+ * <p>
+ * The patterns are compiled once, the tree is walked with {@link Files#walkFileTree} and the attributes
+ * of each entry are only read once. A folder is not visited when no include pattern can match below it,
+ * or when an exclude pattern excludes all its content.
+ * The Ant semantics are kept: comma separated patterns, '**' for any number of folders, '*' and '?' in a name,
+ * a trailing separator for all the content of a folder, case sensitive matching,
+ * default excludes and symbolic links followed.
+ */
+public class FSTriggerFileScanner {
+
+    /**
+     * Receives the included entries of a scan
+     */
+    public interface Visitor {
+
+        void visitFile(File file, BasicFileAttributes attributes) throws IOException;
+
+        default void visitDirectory(File dir, BasicFileAttributes attributes) throws IOException {
+        }
+    }
+
+    private final AntPattern[] includes;
+
+    private final AntPattern[] excludes;
+
+    /**
+     * @param includes the comma separated include patterns, null for all the files
+     * @param excludes the comma separated exclude patterns, null for none
+     */
+    public FSTriggerFileScanner(String includes, String excludes) {
+        this.includes = compile(includes == null ? "**" : includes);
+        List<AntPattern> allExcludes = new ArrayList<>(Arrays.asList(compile(excludes)));
+        for (String defaultExclude : DirectoryScanner.getDefaultExcludes()) {
+            allExcludes.add(new AntPattern(defaultExclude));
+        }
+        this.excludes = allExcludes.toArray(new AntPattern[0]);
+    }
+
+    /**
+     * Scans a folder
+     *
+     * @param baseDir the folder, the patterns are relative to it
+     * @param visitor receives the included files and folders
+     * @throws IOException if the folder can't be read, or if the visitor fails
+     */
+    public void scan(File baseDir, final Visitor visitor) throws IOException {
+        final Path root = baseDir.toPath();
+        Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                if (dir.equals(root)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String[] tokens = tokenize(root.relativize(dir));
+                if (isIncluded(tokens)) {
+                    visitor.visitDirectory(dir.toFile(), attributes);
+                }
+                if (!couldHoldIncluded(tokens) || isContentExcluded(tokens)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                //A broken symbolic link is not a file
+                if (attributes.isSymbolicLink()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (isIncluded(tokenize(root.relativize(file)))) {
+                    visitor.visitFile(file.toFile(), attributes);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                //As Ant, the unreadable entries and the symbolic link loops are ignored
+                if (file.equals(root) && !(exc instanceof FileSystemLoopException)) {
+                    throw exc;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Scans the files of a folder
+     *
+     * @param baseDir the folder, the patterns are relative to it
+     * @return the included files
+     * @throws IOException if the folder can't be read
+     */
+    public List<File> scanFiles(File baseDir) throws IOException {
+        final List<File> files = new ArrayList<>();
+        scan(baseDir, (file, attributes) -> files.add(file));
+        return files;
+    }
+
+    /**
+     * Checks if a path relative to the scanned folder is included
+     */
+    public boolean isIncluded(String relativePath) {
+        return isIncluded(tokenize(relativePath));
+    }
+
+    /**
+     * Checks if the content of a folder, given by its path relative to the scanned folder, is not visited by a scan
+     */
+    public boolean isContentSkipped(String relativeDirPath) {
+        String[] tokens = tokenize(relativeDirPath);
+        return !couldHoldIncluded(tokens) || isContentExcluded(tokens);
+    }
+
+    private boolean isIncluded(String[] tokens) {
+        return matchesAny(includes, tokens) && !matchesAny(excludes, tokens);
+    }
+
+    private static boolean matchesAny(AntPattern[] patterns, String[] tokens) {
+        for (AntPattern pattern : patterns) {
+            if (pattern.matches(tokens)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean couldHoldIncluded(String[] dirTokens) {
+        for (AntPattern include : includes) {
+            if (include.couldMatchBelow(dirTokens)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isContentExcluded(String[] dirTokens) {
+        for (AntPattern exclude : excludes) {
+            if (exclude.excludesContentOf(dirTokens)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(Path relativePath) {
+        String[] tokens = new String[relativePath.getNameCount()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = relativePath.getName(i).toString();
+        }
+        return tokens;
+    }
+
+    private static String[] tokenize(String path) {
+        List<String> tokens = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(path, File.separator);
+        while (tokenizer.hasMoreTokens()) {
+            tokens.add(tokenizer.nextToken());
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Splits a comma separated list of patterns
+     */
+    private static AntPattern[] compile(String patterns) {
+        if (patterns == null) {
+            return new AntPattern[0];
+        }
+        List<AntPattern> result = new ArrayList<>();
+        StringTokenizer tokens = new StringTokenizer(patterns, ",");
+        while (tokens.hasMoreTokens()) {
+            String pattern = tokens.nextToken().trim();
+            if (!pattern.isEmpty()) {
+                result.add(new AntPattern(pattern));
+            }
+        }
+        return result.toArray(new AntPattern[0]);
+    }
+
+    /**
+     * An Ant pattern split into compiled name matchers
+     */
+    private static class AntPattern {
+
+        private static final String DEEP_TREE_MATCH = "**";
+
+        /**
+         * A name matcher, null for '**'
+         */
+        private final NameMatcher[] segments;
+
+        private final boolean absolute;
+
+        private final boolean deep;
+
+        AntPattern(String pattern) {
+            String normalized = pattern.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (normalized.endsWith(File.separator)) {
+                normalized += DEEP_TREE_MATCH;
+            }
+            this.absolute = normalized.startsWith(File.separator);
+            String[] tokens = tokenize(normalized);
+            this.segments = new NameMatcher[tokens.length];
+            boolean hasDeepSegment = false;
+            for (int i = 0; i < tokens.length; i++) {
+                if (DEEP_TREE_MATCH.equals(tokens[i])) {
+                    hasDeepSegment = true;
+                } else {
+                    segments[i] = new NameMatcher(tokens[i]);
+                }
+            }
+            this.deep = hasDeepSegment;
+        }
+
+        /**
+         * Matches a whole relative path, '**' matching any number of names
+         */
+        boolean matches(String[] tokens) {
+            return !absolute && matches(segments, segments.length, tokens);
+        }
+
+        private static boolean matches(NameMatcher[] segments, int length, String[] tokens) {
+            int segment = 0;
+            int token = 0;
+            int deepSegment = -1;
+            int deepToken = -1;
+            while (token < tokens.length) {
+                if (segment < length && segments[segment] == null) {
+                    deepSegment = segment++;
+                    deepToken = token;
+                } else if (segment < length && segments[segment].matches(tokens[token])) {
+                    segment++;
+                    token++;
+                } else if (deepSegment != -1) {
+                    segment = deepSegment + 1;
+                    token = ++deepToken;
+                } else {
+                    return false;
+                }
+            }
+            while (segment < length && segments[segment] == null) {
+                segment++;
+            }
+            return segment == length;
+        }
+
+        /**
+         * Checks if the pattern may match a path below the given folder
+         */
+        boolean couldMatchBelow(String[] dirTokens) {
+            if (absolute) {
+                return false;
+            }
+            int segment = 0;
+            int token = 0;
+            while (segment < segments.length && token < dirTokens.length) {
+                if (segments[segment] == null) {
+                    return true;
+                }
+                if (!segments[segment].matches(dirTokens[token])) {
+                    return false;
+                }
+                segment++;
+                token++;
+            }
+            if (token < dirTokens.length) {
+                return false;
+            }
+            return deep || segments.length > dirTokens.length;
+        }
+
+        /**
+         * Checks if the pattern ends with '**' and excludes the given folder with all its content
+         */
+        boolean excludesContentOf(String[] dirTokens) {
+            int length = segments.length;
+            return !absolute && length > 0 && segments[length - 1] == null && matches(segments, length - 1, dirTokens);
+        }
+    }
+
+    /**
+     * Matches a single name, with '*' and '?' wildcards
+     */
+    private static class NameMatcher {
+
+        private final String literal;
+
+        private final Pattern pattern;
+
+        NameMatcher(String name) {
+            if (name.indexOf('*') == -1 && name.indexOf('?') == -1) {
+                this.literal = name;
+                this.pattern = null;
+                return;
+            }
+            StringBuilder regex = new StringBuilder();
+            StringBuilder text = new StringBuilder();
+            for (char c : name.toCharArray()) {
+                if (c == '*' || c == '?') {
+                    if (text.length() > 0) {
+                        regex.append(Pattern.quote(text.toString()));
+                        text.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    text.append(c);
+                }
+            }
+            if (text.length() > 0) {
+                regex.append(Pattern.quote(text.toString()));
+            }
+            this.literal = null;
+            this.pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        boolean matches(String name) {
+            return (literal != null) ? literal.equals(name) : pattern.matcher(name).matches();
+        }
+    }
+}
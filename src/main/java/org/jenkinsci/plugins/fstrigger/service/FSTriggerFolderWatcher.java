@@ -0,0 +1,290 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a folder tree on the polling node with a {@link WatchService}.
+ * The events are accumulated between two polls, so a poll only has to look at the changed paths.
+ * <p>
+ * The watchers live in the JVM of the polling node and are identified by the caller.
+ * A watcher that has not been polled for a while is closed.
+ */
+public class FSTriggerFolderWatcher implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(FSTriggerFolderWatcher.class.getName());
+
+    private static final long IDLE_TIMEOUT = TimeUnit.HOURS.toMillis(1);
+
+    private static final String DEFAULT_INCLUDES = "**/*.*, **/*";
+
+    private static final Map<String, FSTriggerFolderWatcher> WATCHERS = new HashMap<>();
+
+    /**
+     * Paths reported by a watcher since the previous poll
+     */
+    public static class Events {
+
+        private final String rescanReason;
+
+        private final Set<File> changedPaths;
+
+        private Events(String rescanReason, Set<File> changedPaths) {
+            this.rescanReason = rescanReason;
+            this.changedPaths = changedPaths;
+        }
+
+        /**
+         * @return true if the events can't be trusted and a full snapshot of the folder is required
+         */
+        public boolean isRescanRequired() {
+            return rescanReason != null;
+        }
+
+        public String getRescanReason() {
+            return rescanReason;
+        }
+
+        /**
+         * @return the created, modified and deleted paths, in the order of the events
+         */
+        public Set<File> getChangedPaths() {
+            return changedPaths;
+        }
+    }
+
+    private final Path root;
+
+    private final FSTriggerFileScanner fileScanner;
+
+    private final FSTriggerFileScanner directoryScanner;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+
+    private boolean fresh = true;
+
+    private boolean closed;
+
+    private long lastAccess = System.currentTimeMillis();
+
+    private FSTriggerFolderWatcher(File root, String includes, String excludes) throws IOException {
+        this.root = root.toPath().toAbsolutePath();
+        this.fileScanner = new FSTriggerFileScanner(includes == null ? DEFAULT_INCLUDES : includes, excludes);
+        this.directoryScanner = new FSTriggerFileScanner("*", excludes);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            registerTree(this.root, null);
+        } catch (IOException ioe) {
+            watchService.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Gets the watcher with the given identifier, a new watcher is created if there is none.
+     * The first poll of a new watcher always requires a full snapshot.
+     *
+     * @param id       the identifier of the watcher, it must change when the configuration changes
+     * @param root     the folder to watch
+     * @param includes the Ant includes pattern, null for all files
+     * @param excludes the Ant excludes pattern, null for none
+     * @return the watcher
+     * @throws IOException if the folder can't be watched (e.g. the limit of watches of the system is reached)
+     */
+    public static FSTriggerFolderWatcher get(String id, File root, String includes, String excludes) throws IOException {
+        synchronized (WATCHERS) {
+            closeIdleWatchers();
+            FSTriggerFolderWatcher watcher = WATCHERS.get(id);
+            if (watcher == null || watcher.closed) {
+                watcher = new FSTriggerFolderWatcher(root, includes, excludes);
+                WATCHERS.put(id, watcher);
+            }
+            watcher.lastAccess = System.currentTimeMillis();
+            return watcher;
+        }
+    }
+
+    /**
+     * Closes and forgets the watcher with the given identifier.
+     * The next call to {@link #get} starts a new watcher.
+     *
+     * @param id the identifier of the watcher
+     */
+    public static void release(String id) {
+        FSTriggerFolderWatcher watcher;
+        synchronized (WATCHERS) {
+            watcher = WATCHERS.remove(id);
+        }
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    private static void closeIdleWatchers() {
+        long now = System.currentTimeMillis();
+        for (Iterator<FSTriggerFolderWatcher> it = WATCHERS.values().iterator(); it.hasNext(); ) {
+            FSTriggerFolderWatcher watcher = it.next();
+            if (now - watcher.lastAccess > IDLE_TIMEOUT) {
+                it.remove();
+                watcher.close();
+            }
+        }
+    }
+
+    /**
+     * Drains the events received since the previous poll
+     *
+     * @return the changed paths, or a rescan request if the events are not complete
+     */
+    public synchronized Events poll() {
+
+        if (closed) {
+            return new Events("The watch of the folder has been stopped.", null);
+        }
+
+        if (fresh) {
+            fresh = false;
+            return new Events("The folder is now watched.", null);
+        }
+
+        Set<File> changedPaths = new LinkedHashSet<>();
+        boolean overflow = false;
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        //The new folder may already contain files
+                        registerTree(child, changedPaths);
+                    } catch (IOException ioe) {
+                        LOGGER.log(Level.FINE, "Can't watch the folder " + child, ioe);
+                        overflow = true;
+                    }
+                }
+                changedPaths.add(child.toFile());
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+                if (root.equals(dir)) {
+                    close();
+                    return new Events(String.format("The folder '%s' is no longer accessible.", root), null);
+                }
+            }
+        }
+
+        if (overflow) {
+            return new Events("Some file system events have been lost.", null);
+        }
+        return new Events(null, changedPaths);
+    }
+
+    /**
+     * Checks if a path of the watched tree is monitored as a file with the includes and excludes patterns
+     */
+    public boolean isMonitoredFile(File file) {
+        String relativePath = getRelativePath(file);
+        return relativePath != null && fileScanner.isIncluded(relativePath);
+    }
+
+    /**
+     * Checks if a path of the watched tree is monitored as a folder.
+     * As for a full snapshot, only the direct sub folders of the watched folder are monitored.
+     */
+    public boolean isMonitoredDirectory(File dir) {
+        String relativePath = getRelativePath(dir);
+        return relativePath != null && directoryScanner.isIncluded(relativePath);
+    }
+
+    private String getRelativePath(File file) {
+        Path path = file.toPath().toAbsolutePath();
+        if (!path.startsWith(root) || path.equals(root)) {
+            return null;
+        }
+        return root.relativize(path).toString();
+    }
+
+    /**
+     * Watches a folder and its sub folders, the symbolic links being followed as for a full snapshot.
+     * The folders whose content is not scanned with the includes and excludes patterns are not watched.
+     */
+    private void registerTree(Path dir, final Set<File> createdPaths) throws IOException {
+        Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                if (createdPaths != null) {
+                    createdPaths.add(subDir.toFile());
+                }
+                if (!subDir.equals(root) && fileScanner.isContentSkipped(root.relativize(subDir).toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = subDir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, subDir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (createdPaths != null) {
+                    createdPaths.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                //As for a full snapshot, the unreadable entries and the symbolic link loops are ignored
+                if (file.equals(dir) && !(exc instanceof FileSystemLoopException)) {
+                    throw exc;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        keys.clear();
+        try {
+            watchService.close();
+        } catch (IOException ioe) {
+            LOGGER.log(Level.FINE, "Can't close the watch service of " + root, ioe);
+        }
+    }
+}
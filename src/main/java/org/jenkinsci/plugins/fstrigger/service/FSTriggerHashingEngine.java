@@ -0,0 +1,138 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes a value (typically a digest) for a list of files on a bounded fork-join pool.
+ * The files are split into work units made of contiguous slices of the given list,
+ * so the results are returned in the order of the input list whatever the parallelism.
+ */
+public class FSTriggerHashingEngine {
+
+    /**
+     * System property giving the default parallelism of the node, used when the trigger doesn't set one
+     */
+    public static final String PARALLELISM_PROPERTY = FSTriggerHashingEngine.class.getName() + ".parallelism";
+
+    /**
+     * Minimum number of files of a work unit
+     */
+    private static final int MIN_UNIT_SIZE = 16;
+
+    public interface FileTask<T> {
+        T compute(File file) throws IOException;
+    }
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism the number of threads, 0 or less to use the default parallelism of the current node
+     */
+    public FSTriggerHashingEngine(int parallelism) {
+        this.parallelism = (parallelism > 0) ? parallelism : getNodeParallelism();
+    }
+
+    /**
+     * Gets the default parallelism of the current JVM
+     *
+     * @return the value of the {@link #PARALLELISM_PROPERTY} system property, 1 if not set
+     */
+    public static int getNodeParallelism() {
+        Integer value = Integer.getInteger(PARALLELISM_PROPERTY);
+        if (value == null || value < 1) {
+            return 1;
+        }
+        return Math.min(value, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Computes the task for each file
+     *
+     * @param files the files to process
+     * @param task  the computation
+     * @return the results, in the order of the given files
+     * @throws IOException          if a task fails
+     * @throws InterruptedException if the computation is interrupted
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> computeAll(List<File> files, FileTask<T> task) throws IOException, InterruptedException {
+
+        Object[] results = new Object[files.size()];
+
+        if (parallelism <= 1 || files.size() <= MIN_UNIT_SIZE) {
+            for (int i = 0; i < results.length; i++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                results[i] = task.compute(files.get(i));
+            }
+            return (List<T>) new ArrayList<>(Arrays.asList(results));
+        }
+
+        int unitSize = Math.max(MIN_UNIT_SIZE, files.size() / (parallelism * 4));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(new WorkUnit<>(files, task, results, 0, files.size(), unitSize)).get();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        return (List<T>) new ArrayList<>(Arrays.asList(results));
+    }
+
+    private static class WorkUnit<T> extends RecursiveAction {
+
+        private final List<File> files;
+        private final FileTask<T> task;
+        private final Object[] results;
+        private final int start;
+        private final int end;
+        private final int unitSize;
+
+        WorkUnit(List<File> files, FileTask<T> task, Object[] results, int start, int end, int unitSize) {
+            this.files = files;
+            this.task = task;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.unitSize = unitSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= unitSize) {
+                for (int i = start; i < end; i++) {
+                    try {
+                        results[i] = task.compute(files.get(i));
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new WorkUnit<>(files, task, results, start, middle, unitSize),
+                    new WorkUnit<>(files, task, results, middle, end, unitSize));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The state of all the files monitored by an entry, recorded at a poll.
+ * <p>
+ * The state is stored in columns sorted by path: the paths, the modification dates
+ * and the memory information of the content types of each file, with the stat of the file it has been recorded for.
+ */
+public class FSTriggerMonitoredFiles implements Serializable {
+
+    private final String[] paths;
+
+    private final long[] lastModifications;
+
+    /**
+     * The memory information of each content type for each file, null when the content is not inspected
+     */
+    private final Object[][] memoryInfos;
+
+    /**
+     * The stat of each file when its memory information has been recorded, null when the content is not inspected
+     */
+    private final FSTriggerFileStat[] fileStats;
+
+    /**
+     * @param paths             the paths of the files, sorted
+     * @param lastModifications the modification date of each file
+     * @param memoryInfos       the memory information of each file, null when the content is not inspected
+     * @param fileStats         the stat of each file, null when the content is not inspected
+     */
+    public FSTriggerMonitoredFiles(String[] paths, long[] lastModifications, Object[][] memoryInfos, FSTriggerFileStat[] fileStats) {
+        if (paths.length != lastModifications.length
+                || (memoryInfos != null && memoryInfos.length != paths.length)
+                || (fileStats != null && fileStats.length != paths.length)) {
+            throw new IllegalArgumentException("The columns of the monitored files must have the same length.");
+        }
+        this.paths = paths;
+        this.lastModifications = lastModifications;
+        this.memoryInfos = memoryInfos;
+        this.fileStats = fileStats;
+    }
+
+    public int size() {
+        return paths.length;
+    }
+
+    public String getPath(int index) {
+        return paths[index];
+    }
+
+    public long getLastModification(int index) {
+        return lastModifications[index];
+    }
+
+    /**
+     * @return the memory information of each content type for a file, null when the content is not inspected
+     */
+    public Object[] getMemoryInfos(int index) {
+        return (memoryInfos == null) ? null : memoryInfos[index];
+    }
+
+    /**
+     * @return the stat of a file when its memory information has been recorded, null if unknown
+     */
+    public FSTriggerFileStat getFileStat(int index) {
+        return (fileStats == null) ? null : fileStats[index];
+    }
+
+    /**
+     * @return the index of a file, or a negative value if the file is not monitored
+     */
+    public int indexOf(String path) {
+        return Arrays.binarySearch(paths, path);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
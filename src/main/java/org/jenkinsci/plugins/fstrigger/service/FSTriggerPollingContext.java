@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import hudson.Util;
+import hudson.model.Job;
+import hudson.model.Node;
+import org.jenkinsci.lib.envinject.EnvInjectException;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The context of a poll of a job on a node.
+ * The environment variables are resolved at most once per poll, through {@link FSTriggerEnvVarsCache}.
+ */
+public class FSTriggerPollingContext {
+
+    private final Job job;
+
+    private final Node node;
+
+    private Map<String, String> envVars;
+
+    /**
+     * @param job  the polled job, null when there is no job yet
+     * @param node the polling node
+     */
+    public FSTriggerPollingContext(Job job, Node node) {
+        this.job = job;
+        this.node = node;
+    }
+
+    /**
+     * @return the polling environment variables, empty when there is no job
+     * @throws XTriggerException if the variables can't be resolved
+     */
+    public Map<String, String> getEnvVars() throws XTriggerException {
+        if (envVars == null) {
+            if (job == null) {
+                envVars = Collections.emptyMap();
+            } else {
+                try {
+                    envVars = FSTriggerEnvVarsCache.getPollingEnvVars(job, node);
+                } catch (EnvInjectException e) {
+                    throw new XTriggerException(e);
+                }
+            }
+        }
+        return envVars;
+    }
+
+    /**
+     * Replaces the environment variables in a value
+     *
+     * @param value the value, may be null
+     * @return the resolved value, null if the value is null
+     * @throws XTriggerException if the variables can't be resolved
+     */
+    public String resolve(String value) throws XTriggerException {
+        return Util.replaceMacro(value, getEnvVars());
+    }
+}
@@ -0,0 +1,99 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.io.Serializable;
+
+/**
+ * The settings of a sampled fingerprint of a large file.
+ * <p>
+ * Instead of reading the whole content, the fingerprint combines the size of the file, its first and last bytes,
+ * and blocks evenly spaced between them. It detects appended, truncated and rewritten files,
+ * but a change located between the sampled blocks without a change of size is not seen.
+ * The files below the threshold are fully digested.
+ * <p>
+ * The settings are part of the identifier of the recorded digests: digests computed with other settings can't be compared.
+ */
+public class FSTriggerSampledFingerprint implements Serializable {
+
+    private static final long MB = 1024L * 1024;
+
+    private static final long DEFAULT_EDGE_SIZE = 4 * MB;
+
+    private static final int DEFAULT_SAMPLE_COUNT = 16;
+
+    private static final long DEFAULT_BLOCK_SIZE = MB;
+
+    private final long threshold;
+
+    private final long edgeSize;
+
+    private final int sampleCount;
+
+    private final long blockSize;
+
+    public FSTriggerSampledFingerprint(long threshold, long edgeSize, int sampleCount, long blockSize) {
+        if (threshold < 0 || edgeSize <= 0 || sampleCount < 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("The threshold, edge size, sample count and block size of a sampled fingerprint must be positive.");
+        }
+        this.threshold = threshold;
+        this.edgeSize = edgeSize;
+        this.sampleCount = sampleCount;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Gets the settings for a threshold: the first and last 4 MB, and 16 blocks of 1 MB are sampled
+     *
+     * @param thresholdMB the size in MB from which the files are sampled, 0 or less for always fully digesting the files
+     * @return the settings, or null when the files are always fully digested
+     */
+    public static FSTriggerSampledFingerprint forThreshold(int thresholdMB) {
+        if (thresholdMB <= 0) {
+            return null;
+        }
+        return new FSTriggerSampledFingerprint(thresholdMB * MB, DEFAULT_EDGE_SIZE, DEFAULT_SAMPLE_COUNT, DEFAULT_BLOCK_SIZE);
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    public long getEdgeSize() {
+        return edgeSize;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Checks if a file of the given size is sampled.
+     * A file that is not larger than the sampled bytes is fully digested.
+     */
+    public boolean isSampled(long size) {
+        return size >= threshold && size > 2 * edgeSize + sampleCount * blockSize;
+    }
+
+    /**
+     * Gets the position of a sampled block between the first and last bytes of a file
+     *
+     * @param size  the size of the file
+     * @param index the index of the block, from 0 to the sample count excluded
+     */
+    public long getBlockPosition(long size, int index) {
+        long step = (size - 2 * edgeSize - blockSize) / (sampleCount + 1);
+        return edgeSize + step * (index + 1);
+    }
+
+    /**
+     * @return the identifier of the settings, recorded with the digests
+     */
+    public String getId() {
+        return String.format("SAMPLED-%d-%d-%dx%d", threshold, edgeSize, sampleCount, blockSize);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
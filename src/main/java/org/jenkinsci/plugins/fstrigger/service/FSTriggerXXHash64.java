@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming implementation of the xxHash64 non-cryptographic hash (seed 0).
+ * The digest is the canonical big-endian representation of the 64-bit hash.
+ */
+class FSTriggerXXHash64 implements FSTriggerDigest {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_LENGTH = 32;
+
+    private long v1 = PRIME1 + PRIME2;
+    private long v2 = PRIME2;
+    private long v3 = 0;
+    private long v4 = -PRIME1;
+
+    private long totalLength;
+
+    /**
+     * The bytes of an incomplete stripe
+     */
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public void update(byte[] input, int offset, int length) {
+        update(ByteBuffer.wrap(input, offset, length));
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+        ByteBuffer data = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int length = data.remaining();
+        totalLength += length;
+        input.position(input.limit());
+
+        if (pending.position() > 0) {
+            int count = Math.min(pending.remaining(), data.remaining());
+            for (int i = 0; i < count; i++) {
+                pending.put(data.get());
+            }
+            if (pending.hasRemaining()) {
+                return;
+            }
+            pending.flip();
+            processStripe(pending);
+            pending.clear();
+        }
+
+        while (data.remaining() >= STRIPE_LENGTH) {
+            processStripe(data);
+        }
+        pending.put(data);
+    }
+
+    private void processStripe(ByteBuffer data) {
+        v1 = round(v1, data.getLong());
+        v2 = round(v2, data.getLong());
+        v3 = round(v3, data.getLong());
+        v4 = round(v4, data.getLong());
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash;
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += totalLength;
+
+        pending.flip();
+        while (pending.remaining() >= 8) {
+            hash ^= round(0, pending.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (pending.remaining() >= 4) {
+            hash ^= (pending.getInt() & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (pending.hasRemaining()) {
+            hash ^= (pending.get() & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+
+        return ByteBuffer.allocate(8).putLong(hash).array();
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME1 + PRIME4;
+    }
+}
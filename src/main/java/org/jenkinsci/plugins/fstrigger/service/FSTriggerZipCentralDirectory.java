@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Computes the digest of the central directory of a ZIP archive, read through a {@link FileChannel}.
+ * <p>
+ * The central directory lists the name, sizes, CRC, time and extra fields of every entry,
+ * so an unchanged digest means unchanged entries without enumerating them.
+ * It is located from the end of central directory record, or its ZIP64 variant for the large archives.
+ */
+public class FSTriggerZipCentralDirectory {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int END_SIZE = 22;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_END_SIZE = 56;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private FSTriggerZipCentralDirectory() {
+    }
+
+    /**
+     * Computes the digest of the central directory of an archive
+     *
+     * @param file      the archive
+     * @param algorithm the digest algorithm
+     * @return the digest as a lowercase hexadecimal string, null if no central directory is found
+     * @throws IOException if the file can't be read
+     */
+    public static String digest(File file, FSTriggerDigestAlgorithm algorithm) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT_SIZE);
+            ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, tail, size - tailSize);
+
+            int end = findEnd(tail);
+            if (end == -1) {
+                return null;
+            }
+            long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+            long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+
+            long endPosition = size - tailSize + end;
+            if ((directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) && endPosition >= ZIP64_LOCATOR_SIZE) {
+                ByteBuffer locator = ByteBuffer.allocate(ZIP64_LOCATOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, locator, endPosition - ZIP64_LOCATOR_SIZE);
+                if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                    ByteBuffer zip64End = ByteBuffer.allocate(ZIP64_END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                    long zip64EndPosition = locator.getLong(8);
+                    if (zip64EndPosition < 0 || zip64EndPosition > endPosition - ZIP64_END_SIZE) {
+                        return null;
+                    }
+                    readFully(channel, zip64End, zip64EndPosition);
+                    if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                        return null;
+                    }
+                    directorySize = zip64End.getLong(40);
+                    directoryOffset = zip64End.getLong(48);
+                }
+            }
+            if (directoryOffset < 0 || directorySize < 0 || directoryOffset + directorySize > endPosition) {
+                return null;
+            }
+
+            FSTriggerDigest digest = algorithm.newDigest();
+            ByteBuffer buffer = FSTriggerFileHasher.acquireBuffer();
+            try {
+                FSTriggerFileHasher.digestRange(channel, directoryOffset, directorySize, buffer, digest);
+            } finally {
+                FSTriggerFileHasher.releaseBuffer(buffer);
+            }
+            return FSTriggerDigestAlgorithm.toHex(digest.digest());
+        }
+    }
+
+    /**
+     * @return the index of the end of central directory record whose comment ends the file, -1 if none
+     */
+    private static int findEnd(ByteBuffer tail) {
+        for (int i = tail.limit() - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE && i + END_SIZE + (tail.getShort(i + 20) & 0xFFFF) == tail.limit()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("The file has changed while reading its central directory.");
+            }
+        }
+    }
+}
@@ -3,14 +3,12 @@ package org.jenkinsci.plugins.fstrigger.triggers;
 import antlr.ANTLRException;
 import hudson.DescriptorExtensionList;
 import hudson.Extension;
-import hudson.FilePath;
 import hudson.Util;
+import hudson.XmlFile;
 import hudson.console.AnnotatedLargeText;
 import hudson.model.*;
-import hudson.remoting.VirtualChannel;
 import hudson.util.FormValidation;
 import hudson.util.SequentialExecutionQueue;
-import jenkins.MasterToSlaveFileCallable;
 import jenkins.model.Jenkins;
 import net.sf.json.JSON;
 import net.sf.json.JSONArray;
@@ -23,8 +21,8 @@ import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerAction;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
-import org.jenkinsci.plugins.fstrigger.service.FSTriggerComputeFileService;
-import org.jenkinsci.plugins.fstrigger.service.FSTriggerFileNameCheckedModifiedService;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerFileNameBatchService;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerPollingContext;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest2;
 
@@ -32,6 +30,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectStreamException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -49,12 +48,21 @@ public class FileNameTrigger extends AbstractTrigger {
 
     public static final String STRATEGY_IGNORE = "IGNORE";
     public static final String STRATEGY_LATEST = "LATEST";
+    public static final String STRATEGY_OLDEST = "OLDEST";
+    public static final String STRATEGY_LARGEST = "LARGEST";
+    public static final String STRATEGY_NTH_LATEST = "NTH_LATEST";
+    public static final String STRATEGY_ALL = "ALL";
 
     private static final Logger LOGGER = Logger.getLogger(FileNameTrigger.class.getName());
     private static final String CAUSE = "Triggered by a change to a file";
 
     private FileNameTriggerInfo[] fileInfo;
 
+    /**
+     * True when the baseline persisted in the job directory must be read before the next poll
+     */
+    private transient boolean loadBaselineOnPoll;
+
     public FileNameTrigger(String cronTabSpec, FileNameTriggerInfo[] fileInfo) throws ANTLRException {
         super(cronTabSpec);
         this.fileInfo = Arrays.copyOf(fileInfo, fileInfo.length);
@@ -71,6 +79,64 @@ public class FileNameTrigger extends AbstractTrigger {
         return new File(job.getRootDir(), "trigger-polling-files.log");
     }
 
+    private XmlFile getBaselineFile() {
+        if (job == null) return null;
+        return new XmlFile(Jenkins.XSTREAM2, new File(job.getRootDir(), "trigger-polling-files-baseline.xml"));
+    }
+
+    /**
+     * Identifies the resolved configuration a persisted baseline has been recorded for
+     */
+    private String getBaselineKey(FSTriggerPollingContext context) throws XTriggerException {
+        StringBuilder key = new StringBuilder();
+        for (FileNameTriggerInfo info : fileInfo) {
+            key.append(context.resolve(info.getFilePathPattern())).append('|')
+                    .append(info.getStrategy()).append('|')
+                    .append(info.getLatestRank()).append('|')
+                    .append(info.isDoNotCheckLastModificationDate()).append('|')
+                    .append(info.isInspectingContentFile());
+            if (info.isInspectingContentFile()) {
+                for (FSTriggerContentFileType type : info.getContentFileTypes()) {
+                    key.append('|').append(getConfigurationKey(type));
+                }
+            }
+            key.append(';');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Identifies the configuration of a content type, its memory fields are transient so they are not part of it
+     */
+    static String getConfigurationKey(FSTriggerContentFileType type) {
+        return (type == null) ? null : Util.getDigestOf(Jenkins.XSTREAM2.toXML(type));
+    }
+
+    private FileNameTriggerBaseline loadBaseline(String key) {
+        XmlFile baselineFile = getBaselineFile();
+        if (baselineFile == null || !baselineFile.exists()) {
+            return null;
+        }
+        try {
+            return FileNameTriggerBaseline.readFrom(baselineFile, key, fileInfo.length);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Can't read the files baseline " + baselineFile, ioe);
+            return null;
+        }
+    }
+
+    private void saveBaseline(String key) {
+        XmlFile baselineFile = getBaselineFile();
+        if (baselineFile == null) {
+            return;
+        }
+        try {
+            FileNameTriggerBaseline.of(fileInfo, key).writeTo(baselineFile);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Can't write the files baseline " + baselineFile, ioe);
+        }
+    }
+
     @Override
     protected Action[] getScheduledActions(Node node, XTriggerLog log) {
         return new Action[0];
@@ -84,17 +150,26 @@ public class FileNameTrigger extends AbstractTrigger {
     @Override
     public void start(Node pollingNode, BuildableItem project, boolean newInstance, XTriggerLog log) {
 
+        /**
+         * On a restart, the baseline persisted in the job directory is read at the first poll.
+         * The files are only read again when there is no such baseline.
+         */
+        XmlFile baselineFile = getBaselineFile();
+        if (!newInstance && baselineFile != null && baselineFile.exists()) {
+            loadBaselineOnPoll = true;
+            return;
+        }
+
         try {
-            FSTriggerComputeFileService service = new FSTriggerComputeFileService();
-            for (FileNameTriggerInfo info : fileInfo) {
-                FilePath resolvedFile = service.computedFile(pollingNode, (Job) project, info, new XTriggerLog(TaskListener.NULL));
-                if (resolvedFile != null) {
-                    info.setResolvedFile(resolvedFile);
-                    info.setLastModifications(resolvedFile.lastModified());
-                    // Initialize the memory information if whe introspect the content
-                    initContentElementsIfNeed(info);
-                }
+            // Initialize the memory information if whe introspect the content
+            String jobName = (job == null) ? null : job.getName();
+            FSTriggerPollingContext context = new FSTriggerPollingContext((Job) project, pollingNode);
+            FSTriggerFileNameBatchService.EntryResult[] results = new FSTriggerFileNameBatchService()
+                    .evaluate(pollingNode, context, jobName, fileInfo, false, new XTriggerLog(TaskListener.NULL));
+            for (int i = 0; i < fileInfo.length; i++) {
+                refreshMemoryInfo(fileInfo[i], results[i]);
             }
+            saveBaseline(getBaselineKey(context));
         } catch (XTriggerException fse) {
             LOGGER.log(Level.SEVERE, "Error on trigger startup " + fse.getMessage());
             fse.printStackTrace();
@@ -104,178 +179,71 @@ public class FileNameTrigger extends AbstractTrigger {
         }
     }
 
-    private void initContentElementsIfNeed(FileNameTriggerInfo info) throws XTriggerException {
-        if (job == null) return;
-        FilePath resolvedFile = info.getResolvedFile();
-        if (resolvedFile != null) {
-            boolean inspectingContentFile = info.isInspectingContentFile();
-            if (inspectingContentFile) {
-                FSTriggerContentFileType[] contentFileTypes = info.getContentFileTypes();
-                if (contentFileTypes != null) {
-                    for (final FSTriggerContentFileType type : contentFileTypes) {
-                        if (type != null) {
-                            final String jobName = job.getName();
-                            try {
-                                Object memoryInfo = resolvedFile.act(new MemoryInfo(jobName, type));
-                                type.setMemoryInfo(memoryInfo);
-                            } catch (Throwable ie) {
-                                throw new XTriggerException(ie);
-                            }
-                        }
-                    }
+    private void refreshMemoryInfo(FileNameTriggerInfo info, FSTriggerFileNameBatchService.EntryResult result) {
+        info.setResolvedFile(result.getResolvedFile());
+        info.setLastModifications(result.getLastModified());
+        info.setFileStat(result.getFileStat());
+        info.setMonitoredFiles(result.getMonitoredFiles());
+        Object[] memoryInfos = result.getMemoryInfos();
+        if (memoryInfos != null) {
+            FSTriggerContentFileType[] contentFileTypes = info.getContentFileTypes();
+            for (int i = 0; i < contentFileTypes.length; i++) {
+                if (contentFileTypes[i] != null) {
+                    contentFileTypes[i].setMemoryInfo(memoryInfos[i]);
                 }
             }
         }
     }
 
-    private static class MemoryInfo extends MasterToSlaveFileCallable<Object> {
-        private final String jobName;
-        private final FSTriggerContentFileType type;
-
-        public MemoryInfo(String jobName, FSTriggerContentFileType type) {
-            this.jobName = jobName;
-            this.type = type;
-        }
-        @Override
-        public Object invoke(File file, VirtualChannel virtualChannel) {
-            try {
-                type.initMemoryFields(jobName, file);
-            } catch (XTriggerException fse) {
-                throw new RuntimeException(fse);
-            }
-            return type.getMemoryInfo();
-        }
-    }
-
-    private void refreshMemoryInfo(FileNameTriggerInfo info, FilePath newComputedFile) throws XTriggerException {
-        try {
-            if (newComputedFile != null && newComputedFile.exists()) {
-                info.setResolvedFile(newComputedFile);
-                info.setLastModifications(newComputedFile.lastModified());
-                initContentElementsIfNeed(info);
-            } else {
-                info.setResolvedFile(null);
-                info.setLastModifications(0L);
-            }
-        } catch (IOException | InterruptedException ioe) {
-            throw new XTriggerException(ioe);
-        }
-    }
-
     @Override
     protected boolean checkIfModified(Node pollingNode, XTriggerLog log) throws XTriggerException {
 
-        //1-- Compute new resolved files
-        FilePath[] resolvedFiles = getNewResolvedFiles(pollingNode, log);
-
-        //2-- Check if there are at least one change
-        boolean changeResult = checkIfThereAreAtLeastOneChange(resolvedFiles, log);
-
-        //3-- Refresh new resolved files
-        refreshNewResolvedFiles(resolvedFiles);
+        FSTriggerPollingContext context = new FSTriggerPollingContext((Job) job, pollingNode);
+        String baselineKey = getBaselineKey(context);
 
-        //4-- Return change status
-        return changeResult;
-    }
-
-
-    private FilePath[] getNewResolvedFiles(Node pollingNode, XTriggerLog log) throws XTriggerException {
-        FilePath[] resolvedFiles = new FilePath[fileInfo.length];
-        for (int i = 0; i < fileInfo.length; i++) {
-            FileNameTriggerInfo info = fileInfo[i];
-            FilePath resolvedFile = new FSTriggerComputeFileService().computedFile(pollingNode, (AbstractProject) job, info, log);
-            resolvedFiles[i] = resolvedFile;
-        }
-        return resolvedFiles;
-    }
-
-    private boolean checkIfThereAreAtLeastOneChange(FilePath[] resolvedFiles, XTriggerLog log) throws XTriggerException {
-        for (int i = 0; i < resolvedFiles.length; i++) {
-            if (offlineSlaveOnStartup) {
-                log.info("No nodes were available at startup or at previous poll.");
+        //Restore the baseline recorded before the restart
+        boolean recordOnly = false;
+        if (loadBaselineOnPoll) {
+            loadBaselineOnPoll = false;
+            FileNameTriggerBaseline baseline = loadBaseline(baselineKey);
+            if (baseline != null) {
+                baseline.applyTo(fileInfo, (pollingNode == null) ? null : pollingNode.getChannel());
                 offlineSlaveOnStartup = false;
-                return false;
-            }
-
-            FileNameTriggerInfo info = fileInfo[i];
-            FilePath resolvedFile = resolvedFiles[i];
-            boolean changed = checkIfModifiedFile(resolvedFile, info, log);
-            if (changed) {
-                return true;
+            } else {
+                log.info("The recorded baseline of the files is missing or stale. Waiting for next schedule to check if there are modifications.");
+                recordOnly = true;
             }
         }
-        return false;
-    }
 
-    private void refreshNewResolvedFiles(FilePath[] resolvedFiles) throws XTriggerException {
-        for (int i = 0; i < resolvedFiles.length; i++) {
-            refreshMemoryInfo(fileInfo[i], resolvedFiles[i]);
+        boolean compare = !recordOnly;
+        if (offlineSlaveOnStartup) {
+            log.info("No nodes were available at startup or at previous poll.");
+            offlineSlaveOnStartup = false;
+            compare = false;
         }
-    }
 
-    private boolean checkIfModifiedFile(FilePath newResolvedFile, final FileNameTriggerInfo info, final XTriggerLog log) throws XTriggerException {
+        //1-- Resolve the files and check if there are at least one change, with a single call to the node
+        String jobName = (job == null) ? null : job.getName();
+        FSTriggerFileNameBatchService.EntryResult[] results = new FSTriggerFileNameBatchService()
+                .evaluate(pollingNode, context, jobName, fileInfo, compare, log);
 
-        // Do not trigger a build if the new computed file doesn't exist.
-        if (newResolvedFile == null) {
-            log.info("The computed file doesn't exist.");
-            return false;
+        //2-- Refresh new resolved files
+        boolean changeResult = false;
+        boolean updated = false;
+        for (int i = 0; i < fileInfo.length; i++) {
+            refreshMemoryInfo(fileInfo[i], results[i]);
+            changeResult |= results[i].isChanged();
+            updated |= results[i].isUpdated();
         }
 
-        try {
-            FilePath resolvedFile = info.getResolvedFile();
-            final Long lastModification = info.getLastModifications();
-            final String resolvedFilePath = (resolvedFile != null) ? resolvedFile.getRemote() : null;
-            boolean changedFileName = newResolvedFile.act(new MasterToSlaveFileCallable<Boolean>() {
-                public Boolean invoke(File newResolvedFile, VirtualChannel channel) {
-                    try {
-                        FSTriggerFileNameCheckedModifiedService service = new FSTriggerFileNameCheckedModifiedService(log, info, resolvedFilePath, lastModification, newResolvedFile);
-                        return service.checkFileName();
-                    } catch (XTriggerException fse) {
-                        throw new RuntimeException(fse);
-                    }
-                }
-            });
-
-            if (changedFileName) {
-                return true;
-            }
-
-            boolean inspectingContentFile = info.isInspectingContentFile();
-            FSTriggerContentFileType[] contentFileTypes = info.getContentFileTypes();
-            if (inspectingContentFile) {
-                log.info("Inspecting the contents of '" + newResolvedFile + "'");
-                for (final FSTriggerContentFileType type : contentFileTypes) {
-                    final Object memoryObject = type.getMemoryInfo();
-                    if (memoryObject == null) {
-                        log.info("No modifications according the given criteria.");
-                        return false;
-                    }
-                    boolean isTriggered = newResolvedFile.act(new MasterToSlaveFileCallable<Boolean>() {
-                        public Boolean invoke(File newResolvedFile, VirtualChannel channel) {
-                            boolean isTriggered;
-                            try {
-                                FSTriggerFileNameCheckedModifiedService service = new FSTriggerFileNameCheckedModifiedService(log, info, resolvedFilePath, lastModification, newResolvedFile);
-                                type.setMemoryInfo(memoryObject);
-                                isTriggered = service.checkContentType(type);
-                            } catch (XTriggerException fse) {
-                                throw new RuntimeException(fse);
-                            }
-                            return isTriggered;
-                        }
-                    });
-                    if (isTriggered) {
-                        return true;
-                    }
-                }
-
-                return false;
-            }
-
-
-        } catch (Throwable ie) {
-            throw new XTriggerException(ie);
+        //Nothing to write when the recorded state is unchanged
+        XmlFile baselineFile = getBaselineFile();
+        if (updated || !compare || (baselineFile != null && !baselineFile.exists())) {
+            saveBaseline(baselineKey);
         }
-        return false;
+
+        //3-- Return change status
+        return changeResult;
     }
 
     @Override
@@ -428,6 +396,7 @@ public class FileNameTrigger extends AbstractTrigger {
             FileNameTriggerInfo info = new FileNameTriggerInfo();
             info.setFilePathPattern(Util.fixEmpty(entryObject.getString("filePathPattern")));
             info.setStrategy(entryObject.getString("strategy"));
+            info.setLatestRank(entryObject.optInt("latestRank", 1));
             setInfoContentType(req, entryObject, info);
             return info;
 
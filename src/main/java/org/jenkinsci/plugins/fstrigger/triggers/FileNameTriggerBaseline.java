@@ -0,0 +1,172 @@
+package org.jenkinsci.plugins.fstrigger.triggers;
+
+import hudson.FilePath;
+import hudson.XmlFile;
+import hudson.remoting.VirtualChannel;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerMonitoredFiles;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * The files and the memory information of the content types recorded by a {@link FileNameTrigger} at a poll.
+ * <p>
+ * The baseline is persisted in the job directory as an {@link XmlFile}, so a restart doesn't read and parse
+ * all the monitored files again. A memory information that is not serializable is not recorded:
+ * the content type is initialized again at the next poll.
+ */
+public class FileNameTriggerBaseline {
+
+    /**
+     * The version of the recorded information, it must be increased on each incompatible change
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private final int version;
+
+    /**
+     * Identifies the configuration the baseline has been recorded for
+     */
+    private final String key;
+
+    private final String[] resolvedPaths;
+
+    private final long[] lastModifications;
+
+    private final Object[][] memoryInfos;
+
+    private final FSTriggerFileStat[] fileStats;
+
+    private final FSTriggerMonitoredFiles[] monitoredFiles;
+
+    private FileNameTriggerBaseline(String key, String[] resolvedPaths, long[] lastModifications, Object[][] memoryInfos, FSTriggerFileStat[] fileStats, FSTriggerMonitoredFiles[] monitoredFiles) {
+        this.version = FORMAT_VERSION;
+        this.key = key;
+        this.resolvedPaths = resolvedPaths;
+        this.lastModifications = lastModifications;
+        this.memoryInfos = memoryInfos;
+        this.fileStats = fileStats;
+        this.monitoredFiles = monitoredFiles;
+    }
+
+    /**
+     * Records the current state of the entries
+     *
+     * @param fileInfos the entries
+     * @param key       identifies the configuration of the entries
+     */
+    public static FileNameTriggerBaseline of(FileNameTriggerInfo[] fileInfos, String key) {
+        int count = fileInfos.length;
+        String[] resolvedPaths = new String[count];
+        long[] lastModifications = new long[count];
+        Object[][] memoryInfos = new Object[count][];
+        FSTriggerFileStat[] fileStats = new FSTriggerFileStat[count];
+        FSTriggerMonitoredFiles[] monitoredFiles = new FSTriggerMonitoredFiles[count];
+        for (int i = 0; i < count; i++) {
+            FileNameTriggerInfo info = fileInfos[i];
+            resolvedPaths[i] = (info.getResolvedFile() == null) ? null : info.getResolvedFile().getRemote();
+            lastModifications[i] = info.getLastModifications();
+            fileStats[i] = info.getFileStat();
+            monitoredFiles[i] = filter(info.getMonitoredFiles());
+            if (resolvedPaths[i] != null && info.isInspectingContentFile()) {
+                FSTriggerContentFileType[] types = info.getContentFileTypes();
+                Object[] typeMemoryInfos = new Object[types.length];
+                for (int j = 0; j < types.length; j++) {
+                    typeMemoryInfos[j] = (types[j] == null) ? null : types[j].getMemoryInfo();
+                }
+                memoryInfos[i] = filter(typeMemoryInfos);
+            }
+        }
+        return new FileNameTriggerBaseline(key, resolvedPaths, lastModifications, memoryInfos, fileStats, monitoredFiles);
+    }
+
+    private static FSTriggerMonitoredFiles filter(FSTriggerMonitoredFiles files) {
+        if (files == null) {
+            return null;
+        }
+        int count = files.size();
+        String[] paths = new String[count];
+        long[] fileLastModifications = new long[count];
+        Object[][] fileMemoryInfos = new Object[count][];
+        FSTriggerFileStat[] fileStats = new FSTriggerFileStat[count];
+        for (int i = 0; i < count; i++) {
+            paths[i] = files.getPath(i);
+            fileLastModifications[i] = files.getLastModification(i);
+            fileMemoryInfos[i] = filter(files.getMemoryInfos(i));
+            fileStats[i] = files.getFileStat(i);
+        }
+        return new FSTriggerMonitoredFiles(paths, fileLastModifications, fileMemoryInfos, fileStats);
+    }
+
+    /**
+     * @return the memory information without the ones that are not serializable
+     */
+    private static Object[] filter(Object[] memoryInfos) {
+        if (memoryInfos == null) {
+            return null;
+        }
+        Object[] result = new Object[memoryInfos.length];
+        for (int i = 0; i < memoryInfos.length; i++) {
+            result[i] = (memoryInfos[i] instanceof Serializable) ? memoryInfos[i] : null;
+        }
+        return result;
+    }
+
+    /**
+     * Restores the state of the entries
+     *
+     * @param fileInfos the entries, they must be the entries the baseline has been recorded for
+     * @param channel   the channel of the polling node, for the resolved files
+     */
+    public void applyTo(FileNameTriggerInfo[] fileInfos, VirtualChannel channel) {
+        for (int i = 0; i < fileInfos.length; i++) {
+            FileNameTriggerInfo info = fileInfos[i];
+            info.setResolvedFile((resolvedPaths[i] == null) ? null : new FilePath(channel, resolvedPaths[i]));
+            info.setLastModifications(lastModifications[i]);
+            info.setFileStat(fileStats[i]);
+            info.setMonitoredFiles(monitoredFiles[i]);
+            if (memoryInfos[i] != null && info.isInspectingContentFile()) {
+                FSTriggerContentFileType[] types = info.getContentFileTypes();
+                for (int j = 0; j < types.length && j < memoryInfos[i].length; j++) {
+                    if (types[j] != null && memoryInfos[i][j] != null) {
+                        types[j].setMemoryInfo(memoryInfos[i][j]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the baseline
+     *
+     * @param file the file of the baseline
+     * @throws IOException if the baseline can't be written
+     */
+    public void writeTo(XmlFile file) throws IOException {
+        file.write(this);
+    }
+
+    /**
+     * Reads a baseline written by {@link #writeTo}
+     *
+     * @param file  the file of the baseline
+     * @param key   identifies the current configuration
+     * @param count the number of entries of the current configuration
+     * @return the baseline, null if it has been written with another format or for another configuration
+     * @throws IOException if the baseline can't be read
+     */
+    public static FileNameTriggerBaseline readFrom(XmlFile file, String key, int count) throws IOException {
+        Object read = file.read();
+        if (!(read instanceof FileNameTriggerBaseline)) {
+            return null;
+        }
+        FileNameTriggerBaseline baseline = (FileNameTriggerBaseline) read;
+        if (baseline.version != FORMAT_VERSION || !key.equals(baseline.key) || baseline.resolvedPaths == null
+                || baseline.resolvedPaths.length != count) {
+            return null;
+        }
+        return baseline;
+    }
+}
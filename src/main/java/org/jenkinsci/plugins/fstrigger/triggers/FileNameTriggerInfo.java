@@ -2,6 +2,8 @@ package org.jenkinsci.plugins.fstrigger.triggers;
 
 import hudson.FilePath;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerMonitoredFiles;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -15,6 +17,8 @@ public class FileNameTriggerInfo implements Serializable {
 
     private String strategy;
 
+    private int latestRank;
+
     private boolean inspectingContentFile;
 
     private boolean doNotCheckLastModificationDate;
@@ -23,6 +27,8 @@ public class FileNameTriggerInfo implements Serializable {
 
     private transient FilePath resolvedFile;
     private transient long lastModifications;
+    private transient FSTriggerFileStat fileStat;
+    private transient FSTriggerMonitoredFiles monitoredFiles;
 
     /**
      * Getters and setters
@@ -37,6 +43,14 @@ public class FileNameTriggerInfo implements Serializable {
         return strategy;
     }
 
+    /**
+     * @return the rank of the selected file among the latest modified files, for the NTH_LATEST strategy (1 for the latest)
+     */
+    @SuppressWarnings("unused")
+    public int getLatestRank() {
+        return Math.max(1, latestRank);
+    }
+
     @SuppressWarnings("unused")
     public boolean isInspectingContentFile() {
         return inspectingContentFile;
@@ -60,6 +74,10 @@ public class FileNameTriggerInfo implements Serializable {
         this.strategy = strategy;
     }
 
+    public void setLatestRank(int latestRank) {
+        this.latestRank = latestRank;
+    }
+
     public void setInspectingContentFile(boolean inspectingContentFile) {
         this.inspectingContentFile = inspectingContentFile;
     }
@@ -88,5 +106,27 @@ public class FileNameTriggerInfo implements Serializable {
         this.lastModifications = lastModifications;
     }
 
+    /**
+     * @return the stat of the resolved file when the memory information has been recorded, null if unknown
+     */
+    public FSTriggerFileStat getFileStat() {
+        return fileStat;
+    }
+
+    public void setFileStat(FSTriggerFileStat fileStat) {
+        this.fileStat = fileStat;
+    }
+
+    /**
+     * @return the state of all the matching files at the previous poll, for the ALL strategy
+     */
+    public FSTriggerMonitoredFiles getMonitoredFiles() {
+        return monitoredFiles;
+    }
+
+    public void setMonitoredFiles(FSTriggerMonitoredFiles monitoredFiles) {
+        this.monitoredFiles = monitoredFiles;
+    }
+
     private static final long serialVersionUID = 1L;
 }
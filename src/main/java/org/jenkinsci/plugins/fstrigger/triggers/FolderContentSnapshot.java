@@ -0,0 +1,974 @@
+package org.jenkinsci.plugins.fstrigger.triggers;
+
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The snapshot of a monitored folder.
+ * <p>
+ * The files are stored in columns sorted by path relative to the monitored folder:
+ * the paths are front coded in a single byte array, the dates, sizes and file keys are stored in primitive arrays
+ * and the content digests are stored as raw bytes in a single array.
+ * <p>
+ * The content of each folder is a contiguous range of the columns, and each folder carries a digest
+ * of its content (a Merkle tree). Two snapshots are compared in path order,
+ * and a folder with the same digest in both snapshots is skipped with all its content.
+ */
+public class FolderContentSnapshot implements Serializable {
+
+    private static final String DIGEST_ALGORITHM = "MD5";
+
+    /**
+     * Header of the persisted format, the version must be increased on each change of the format
+     */
+    private static final int FORMAT_MAGIC = 0x46535453;
+
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * Number of paths between two paths stored without the prefix shared with the previous path
+     */
+    private static final int RESTART_INTERVAL = 16;
+
+    /**
+     * Bounds of the persisted lengths
+     */
+    private static final int MAX_DIGEST_LENGTH = 64;
+
+    private static final int READ_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * The absolute path of the monitored folder, null for an empty snapshot
+     */
+    private final String rootPath;
+
+    private final String separator;
+
+    /**
+     * Tells if the last modification dates and the contents are part of the folder digests.
+     * The sizes and the file keys are always part of them.
+     */
+    private final boolean lastModifiedDigested;
+
+    private final boolean contentDigested;
+
+    /**
+     * The identifier of the algorithm of the content digests, null for an empty snapshot
+     */
+    private final String digestAlgorithm;
+
+    private final int count;
+
+    /**
+     * The UTF-8 relative paths. Each path is stored as the length of the prefix shared with the previous path,
+     * the length of the remaining bytes and the remaining bytes. The first path of each restart block is stored whole.
+     */
+    private final byte[] paths;
+
+    private final int[] restartOffsets;
+
+    private final long[] lastModified;
+
+    private final long[] sizes;
+
+    private final long[] fileKeys;
+
+    /**
+     * The digests of the file contents, {@link #digestLength} bytes per file
+     */
+    private final int digestLength;
+
+    private final byte[] digests;
+
+    private final BitSet digested;
+
+    /**
+     * The folders sorted by prefix (the relative path of the folder followed by the separator),
+     * with the range of their content in the columns and their digest
+     */
+    private final String[] folderPrefixes;
+
+    private final int[] folderStarts;
+
+    private final int[] folderEnds;
+
+    private final byte[] folderDigests;
+
+    private final byte[] rootDigest;
+
+    /**
+     * The digest of all the recorded information, null for an empty snapshot
+     */
+    private final String fingerprint;
+
+    private FolderContentSnapshot(String rootPath, String separator, boolean lastModifiedDigested, boolean contentDigested, String digestAlgorithm,
+                                  int count, byte[] paths, int[] restartOffsets, long[] lastModified, long[] sizes, long[] fileKeys,
+                                  int digestLength, byte[] digests, BitSet digested) {
+        this.rootPath = rootPath;
+        this.separator = separator;
+        this.lastModifiedDigested = lastModifiedDigested;
+        this.contentDigested = contentDigested;
+        this.digestAlgorithm = digestAlgorithm;
+        this.count = count;
+        this.paths = paths;
+        this.restartOffsets = restartOffsets;
+        this.lastModified = lastModified;
+        this.sizes = sizes;
+        this.fileKeys = fileKeys;
+        this.digestLength = digestLength;
+        this.digests = digests;
+        this.digested = digested;
+
+        //Builds the folder index from the decoded paths
+        String[] relativePaths = new String[count];
+        PathCursor cursor = new PathCursor();
+        for (int i = 0; i < count; i++) {
+            cursor.moveTo(i);
+            relativePaths[i] = cursor.path();
+        }
+        List<Folder> folders = new ArrayList<>();
+        this.rootDigest = computeFolderDigest(relativePaths, "", 0, count, folders);
+        folders.sort((folder1, folder2) -> folder1.prefix.compareTo(folder2.prefix));
+        int folderCount = folders.size();
+        this.folderPrefixes = new String[folderCount];
+        this.folderStarts = new int[folderCount];
+        this.folderEnds = new int[folderCount];
+        this.folderDigests = new byte[folderCount * rootDigest.length];
+        for (int i = 0; i < folderCount; i++) {
+            Folder folder = folders.get(i);
+            folderPrefixes[i] = folder.prefix;
+            folderStarts[i] = folder.start;
+            folderEnds[i] = folder.end;
+            System.arraycopy(folder.digest, 0, folderDigests, i * rootDigest.length, rootDigest.length);
+        }
+        this.fingerprint = (rootPath == null) ? null : computeFingerprint();
+    }
+
+    /**
+     * Completes the root digest with the settings and the columns left out of the folder digests
+     */
+    private String computeFingerprint() {
+        MessageDigest md = newMessageDigest();
+        md.update(rootPath.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update(String.valueOf(digestAlgorithm).getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update((byte) ((lastModifiedDigested ? 1 : 0) | (contentDigested ? 2 : 0)));
+        md.update(rootDigest);
+        if (!lastModifiedDigested) {
+            for (long date : lastModified) {
+                updateLong(md, date);
+            }
+        }
+        if (!contentDigested) {
+            md.update(digests);
+            md.update(digested.toByteArray());
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : md.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Builds the snapshot and the folder digests, on the node where the folder is located
+     *
+     * @param folderPath           the path of the monitored folder
+     * @param fileInfos            the recorded files and folders, by absolute path
+     * @param lastModifiedDigested true if the last modification dates are checked
+     * @param contentDigested      true if the contents are checked
+     * @param digestAlgorithm      the identifier of the algorithm of the content digests
+     * @return the snapshot
+     */
+    public static FolderContentSnapshot build(String folderPath, Map<String, FolderContentTrigger.FileInfo> fileInfos, boolean lastModifiedDigested, boolean contentDigested, String digestAlgorithm) {
+        Builder builder = new Builder(new File(folderPath).getAbsolutePath(), File.separator, lastModifiedDigested, contentDigested, digestAlgorithm);
+        for (Map.Entry<String, FolderContentTrigger.FileInfo> entry : builder.toRelativePaths(fileInfos).entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets a snapshot without any file
+     */
+    public static FolderContentSnapshot empty() {
+        return new Builder(null, File.separator, false, false, null).build();
+    }
+
+    /**
+     * Gets a snapshot of the same folder with updated and removed files
+     *
+     * @param updatedFileInfos the created or modified files and folders, by absolute path
+     * @param removedPaths     the absolute paths of the removed files and folders, a removed folder removes all its content
+     * @return the new snapshot
+     */
+    public FolderContentSnapshot withChanges(Map<String, FolderContentTrigger.FileInfo> updatedFileInfos, Set<String> removedPaths) {
+        if (rootPath == null) {
+            throw new IllegalStateException("The snapshot is not bound to a folder.");
+        }
+        Builder builder = new Builder(rootPath, separator, lastModifiedDigested, contentDigested, digestAlgorithm);
+        Iterator<Map.Entry<String, FolderContentTrigger.FileInfo>> updates = builder.toRelativePaths(updatedFileInfos).entrySet().iterator();
+        Set<String> removedRelativePaths = new HashSet<>();
+        for (String removedPath : removedPaths) {
+            removedRelativePaths.add(builder.toRelativePath(removedPath));
+        }
+
+        //Merges the sorted updates with the sorted recorded files
+        Map.Entry<String, FolderContentTrigger.FileInfo> update = updates.hasNext() ? updates.next() : null;
+        PathCursor cursor = new PathCursor();
+        for (int i = 0; i < count; i++) {
+            cursor.moveTo(i);
+            String path = cursor.path();
+            while (update != null && update.getKey().compareTo(path) < 0) {
+                builder.add(update.getKey(), update.getValue());
+                update = updates.hasNext() ? updates.next() : null;
+            }
+            if (update != null && update.getKey().equals(path)) {
+                builder.add(update.getKey(), update.getValue());
+                update = updates.hasNext() ? updates.next() : null;
+                continue;
+            }
+            if (!isRemoved(path, removedRelativePaths)) {
+                builder.add(path, this, i);
+            }
+        }
+        while (update != null) {
+            builder.add(update.getKey(), update.getValue());
+            update = updates.hasNext() ? updates.next() : null;
+        }
+        return builder.build();
+    }
+
+    private boolean isRemoved(String relativePath, Set<String> removedRelativePaths) {
+        if (removedRelativePaths.isEmpty()) {
+            return false;
+        }
+        if (removedRelativePaths.contains(relativePath)) {
+            return true;
+        }
+        int index = relativePath.indexOf(separator);
+        while (index != -1) {
+            if (removedRelativePaths.contains(relativePath.substring(0, index))) {
+                return true;
+            }
+            index = relativePath.indexOf(separator, index + separator.length());
+        }
+        return false;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * Identifies the recorded information, two snapshots with the same fingerprint record the same files
+     *
+     * @return the fingerprint, null for a snapshot not bound to a folder
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Estimates the heap retained by the snapshot, for bounding the snapshots kept in memory
+     *
+     * @return the estimated size in bytes
+     */
+    public long getMemorySize() {
+        //16 bytes of header for each array, 40 bytes of header and value for each string
+        long size = 64L + 16L * 11;
+        size += paths.length + 4L * restartOffsets.length;
+        size += 8L * (lastModified.length + sizes.length + fileKeys.length);
+        size += digests.length + digested.size() / 8;
+        for (String folderPrefix : folderPrefixes) {
+            size += 40L + folderPrefix.length();
+        }
+        size += 4L * (folderStarts.length + folderEnds.length) + folderDigests.length + rootDigest.length;
+        return size;
+    }
+
+    /**
+     * Gets the changes since a previous snapshot of the same folder, so that
+     * {@code previous.withChanges(updatedFileInfos, removedPaths)} records the same information as this snapshot
+     *
+     * @param previous         the previous snapshot
+     * @param updatedFileInfos receives the created and modified files and folders, by absolute path
+     * @param removedPaths     receives the absolute paths of the removed files and folders
+     */
+    public void collectChangesSince(FolderContentSnapshot previous, Map<String, FolderContentTrigger.FileInfo> updatedFileInfos, Set<String> removedPaths) {
+        if (rootPath == null || !rootPath.equals(previous.rootPath) || !separator.equals(previous.separator)) {
+            throw new IllegalArgumentException("The snapshots are not bound to the same folder.");
+        }
+        String prefix = getRootPrefix();
+        PathCursor previousCursor = previous.new PathCursor();
+        PathCursor cursor = new PathCursor();
+        int previousIndex = 0;
+        int index = 0;
+        while (previousIndex < previous.count || index < count) {
+            int comparison;
+            if (previousIndex == previous.count) {
+                comparison = 1;
+            } else if (index == count) {
+                comparison = -1;
+            } else {
+                previousCursor.moveTo(previousIndex);
+                cursor.moveTo(index);
+                comparison = previousCursor.path().compareTo(cursor.path());
+            }
+            if (comparison < 0) {
+                previousCursor.moveTo(previousIndex);
+                removedPaths.add(prefix + previousCursor.path());
+                previousIndex++;
+                continue;
+            }
+            cursor.moveTo(index);
+            if (comparison > 0 || !isSameEntry(index, previous, previousIndex)) {
+                updatedFileInfos.put(prefix + cursor.path(),
+                        new FolderContentTrigger.FileInfo(getDigest(index), lastModified[index], sizes[index], fileKeys[index]));
+            }
+            if (comparison == 0) {
+                previousIndex++;
+            }
+            index++;
+        }
+    }
+
+    private boolean isSameEntry(int index, FolderContentSnapshot other, int otherIndex) {
+        return lastModified[index] == other.lastModified[otherIndex]
+                && sizes[index] == other.sizes[otherIndex]
+                && fileKeys[index] == other.fileKeys[otherIndex]
+                && digested.get(index) == other.digested.get(otherIndex)
+                && (!digested.get(index) || isSameDigest(index, other, otherIndex));
+    }
+
+    /**
+     * Gets the recorded information of a file
+     *
+     * @param path the absolute path of the file
+     * @return the information, null if the file is not recorded
+     */
+    public FolderContentTrigger.FileInfo get(String path) {
+        if (rootPath == null) {
+            return null;
+        }
+        String prefix = getRootPrefix();
+        if (!path.startsWith(prefix)) {
+            return null;
+        }
+        int index = indexOf(path.substring(prefix.length()));
+        if (index < 0) {
+            return null;
+        }
+        return new FolderContentTrigger.FileInfo(getDigest(index), lastModified[index], sizes[index], fileKeys[index]);
+    }
+
+    private String getRootPrefix() {
+        return rootPath.endsWith(separator) ? rootPath : rootPath + separator;
+    }
+
+    private String getDigest(int index) {
+        if (!digested.get(index)) {
+            return null;
+        }
+        StringBuilder digest = new StringBuilder(digestLength * 2);
+        for (int i = index * digestLength; i < (index + 1) * digestLength; i++) {
+            digest.append(Character.forDigit((digests[i] >> 4) & 0xF, 16));
+            digest.append(Character.forDigit(digests[i] & 0xF, 16));
+        }
+        return digest.toString();
+    }
+
+    private boolean isSameDigest(int index, FolderContentSnapshot other, int otherIndex) {
+        if (!other.digested.get(otherIndex) || other.digestLength != digestLength) {
+            return false;
+        }
+        for (int i = 0; i < digestLength; i++) {
+            if (digests[index * digestLength + i] != other.digests[otherIndex * digestLength + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a relative path with a binary search on the first paths of the restart blocks
+     */
+    private int indexOf(String relativePath) {
+        PathCursor cursor = new PathCursor();
+        int low = 0;
+        int high = restartOffsets.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            cursor.moveTo(middle * RESTART_INTERVAL);
+            if (cursor.path().compareTo(relativePath) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            return -1;
+        }
+        int end = Math.min(count, (high + 1) * RESTART_INTERVAL);
+        for (int i = high * RESTART_INTERVAL; i < end; i++) {
+            cursor.moveTo(i);
+            if (cursor.path().equals(relativePath)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Folder {
+
+        private final String prefix;
+        private final int start;
+        private final int end;
+        private final byte[] digest;
+
+        Folder(String prefix, int start, int end, byte[] digest) {
+            this.prefix = prefix;
+            this.start = start;
+            this.end = end;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Computes the digest of a folder from the entries it directly contains and from the digests of its sub folders
+     */
+    private byte[] computeFolderDigest(String[] relativePaths, String prefix, int start, int end, List<Folder> folders) {
+        MessageDigest md = newMessageDigest();
+        int i = start;
+        while (i < end) {
+            String path = relativePaths[i];
+            int separatorIndex = path.indexOf(separator, prefix.length());
+            if (separatorIndex == -1) {
+                md.update(path.getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+                updateLong(md, sizes[i]);
+                updateLong(md, fileKeys[i]);
+                if (lastModifiedDigested) {
+                    updateLong(md, lastModified[i]);
+                }
+                if (contentDigested && digested.get(i)) {
+                    md.update(digests, i * digestLength, digestLength);
+                }
+                md.update((byte) 0);
+                i++;
+                continue;
+            }
+            //The content of a sub folder is contiguous
+            String subFolderPrefix = path.substring(0, separatorIndex + separator.length());
+            int subFolderEnd = i + 1;
+            while (subFolderEnd < end && relativePaths[subFolderEnd].startsWith(subFolderPrefix)) {
+                subFolderEnd++;
+            }
+            byte[] subFolderDigest = computeFolderDigest(relativePaths, subFolderPrefix, i, subFolderEnd, folders);
+            folders.add(new Folder(subFolderPrefix, i, subFolderEnd, subFolderDigest));
+            md.update(subFolderPrefix.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 1);
+            md.update(subFolderDigest);
+            i = subFolderEnd;
+        }
+        return md.digest();
+    }
+
+    private static void updateLong(MessageDigest md, long value) {
+        for (int i = 56; i >= 0; i -= 8) {
+            md.update((byte) (value >>> i));
+        }
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes the front coded paths sequentially, from the start of a restart block
+     */
+    private class PathCursor {
+
+        private int index = -1;
+        private int offset;
+        private byte[] current = new byte[64];
+        private int length;
+
+        void moveTo(int target) {
+            if (index == -1 || target < index || target / RESTART_INTERVAL != index / RESTART_INTERVAL) {
+                int restart = target / RESTART_INTERVAL;
+                index = restart * RESTART_INTERVAL - 1;
+                offset = restartOffsets[restart];
+            }
+            while (index < target) {
+                next();
+            }
+        }
+
+        private void next() {
+            int shared = readVarInt();
+            int suffix = readVarInt();
+            if (shared < 0 || shared > length || suffix < 0 || suffix > paths.length - offset) {
+                throw new IllegalStateException("Invalid path encoding at offset " + offset);
+            }
+            if (current.length < shared + suffix) {
+                current = Arrays.copyOf(current, Math.max(current.length * 2, shared + suffix));
+            }
+            System.arraycopy(paths, offset, current, shared, suffix);
+            offset += suffix;
+            length = shared + suffix;
+            index++;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = paths[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String path() {
+            return new String(current, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Encodes the columns from the files given in path order
+     */
+    private static class Builder {
+
+        private final String rootPath;
+        private final String separator;
+        private final boolean lastModifiedDigested;
+        private final boolean contentDigested;
+        private final String digestAlgorithm;
+
+        private final ByteArrayOutputStream paths = new ByteArrayOutputStream();
+        private byte[] previousPath = new byte[0];
+        private int[] restartOffsets = new int[16];
+        private long[] lastModified = new long[256];
+        private long[] sizes = new long[256];
+        private long[] fileKeys = new long[256];
+        private int digestLength = -1;
+        private final ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        private final BitSet digested = new BitSet();
+        private int count;
+
+        Builder(String rootPath, String separator, boolean lastModifiedDigested, boolean contentDigested, String digestAlgorithm) {
+            this.rootPath = rootPath;
+            this.separator = separator;
+            this.lastModifiedDigested = lastModifiedDigested;
+            this.contentDigested = contentDigested;
+            this.digestAlgorithm = digestAlgorithm;
+        }
+
+        String toRelativePath(String path) {
+            String prefix = rootPath.endsWith(separator) ? rootPath : rootPath + separator;
+            if (!path.startsWith(prefix)) {
+                throw new IllegalArgumentException(String.format("The path '%s' is not in the folder '%s'.", path, rootPath));
+            }
+            return path.substring(prefix.length());
+        }
+
+        TreeMap<String, FolderContentTrigger.FileInfo> toRelativePaths(Map<String, FolderContentTrigger.FileInfo> fileInfos) {
+            TreeMap<String, FolderContentTrigger.FileInfo> result = new TreeMap<>();
+            for (Map.Entry<String, FolderContentTrigger.FileInfo> entry : fileInfos.entrySet()) {
+                result.put(toRelativePath(entry.getKey()), entry.getValue());
+            }
+            return result;
+        }
+
+        void add(String relativePath, FolderContentTrigger.FileInfo fileInfo) {
+            byte[] digest = (fileInfo.getMd5() == null) ? null : parseDigest(fileInfo.getMd5());
+            add(relativePath, fileInfo.getLastModified(), fileInfo.getSize(), fileInfo.getFileKey(),
+                    digest, 0, (digest == null) ? 0 : digest.length);
+        }
+
+        void add(String relativePath, FolderContentSnapshot snapshot, int index) {
+            byte[] digest = snapshot.digested.get(index) ? snapshot.digests : null;
+            add(relativePath, snapshot.lastModified[index], snapshot.sizes[index], snapshot.fileKeys[index],
+                    digest, index * snapshot.digestLength, snapshot.digestLength);
+        }
+
+        private void add(String relativePath, long fileLastModified, long size, long fileKey,
+                         byte[] digest, int digestOffset, int length) {
+            if (count == lastModified.length) {
+                lastModified = Arrays.copyOf(lastModified, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+                fileKeys = Arrays.copyOf(fileKeys, count * 2);
+            }
+
+            byte[] path = relativePath.getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            if (count % RESTART_INTERVAL == 0) {
+                int restart = count / RESTART_INTERVAL;
+                if (restart == restartOffsets.length) {
+                    restartOffsets = Arrays.copyOf(restartOffsets, restart * 2);
+                }
+                restartOffsets[restart] = paths.size();
+            } else {
+                int max = Math.min(path.length, previousPath.length);
+                while (shared < max && path[shared] == previousPath[shared]) {
+                    shared++;
+                }
+            }
+            writeVarInt(shared);
+            writeVarInt(path.length - shared);
+            paths.write(path, shared, path.length - shared);
+            previousPath = path;
+
+            lastModified[count] = fileLastModified;
+            sizes[count] = size;
+            fileKeys[count] = fileKey;
+            if (digest != null) {
+                if (digestLength == -1) {
+                    //The files recorded before the first digest have empty slots
+                    digestLength = length;
+                    digests.write(new byte[count * length], 0, count * length);
+                } else if (length != digestLength) {
+                    throw new IllegalArgumentException("All the digests of a snapshot must have the same length.");
+                }
+                digests.write(digest, digestOffset, length);
+                digested.set(count);
+            } else if (digestLength > 0) {
+                digests.write(new byte[digestLength], 0, digestLength);
+            }
+            count++;
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                paths.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            paths.write(value);
+        }
+
+        private static byte[] parseDigest(String hexDigest) {
+            if (hexDigest.length() % 2 != 0) {
+                throw new IllegalArgumentException("Invalid digest " + hexDigest);
+            }
+            byte[] digest = new byte[hexDigest.length() / 2];
+            for (int i = 0; i < digest.length; i++) {
+                int high = Character.digit(hexDigest.charAt(2 * i), 16);
+                int low = Character.digit(hexDigest.charAt(2 * i + 1), 16);
+                if (high == -1 || low == -1) {
+                    throw new IllegalArgumentException("Invalid digest " + hexDigest);
+                }
+                digest[i] = (byte) ((high << 4) | low);
+            }
+            return digest;
+        }
+
+        FolderContentSnapshot build() {
+            int restarts = (count + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+            return new FolderContentSnapshot(rootPath, separator, lastModifiedDigested, contentDigested, digestAlgorithm, count,
+                    paths.toByteArray(), Arrays.copyOf(restartOffsets, restarts),
+                    Arrays.copyOf(lastModified, count), Arrays.copyOf(sizes, count), Arrays.copyOf(fileKeys, count),
+                    Math.max(digestLength, 0), digests.toByteArray(), digested);
+        }
+    }
+
+    /**
+     * Checks if this snapshot records the same information as another one, so there is nothing new to persist.
+     * The columns left out of the folder digests are compared directly.
+     */
+    public boolean isSameAs(FolderContentSnapshot other) {
+        return other != null
+                && Objects.equals(rootPath, other.rootPath)
+                && separator.equals(other.separator)
+                && lastModifiedDigested == other.lastModifiedDigested
+                && contentDigested == other.contentDigested
+                && Objects.equals(digestAlgorithm, other.digestAlgorithm)
+                && count == other.count
+                && Arrays.equals(rootDigest, other.rootDigest)
+                && (lastModifiedDigested || Arrays.equals(lastModified, other.lastModified))
+                && (contentDigested || (Arrays.equals(digests, other.digests) && digested.equals(other.digested)));
+    }
+
+    /**
+     * Checks if this snapshot records exactly the same files, dates, sizes, file keys and digests as another one
+     */
+    public boolean hasSameContent(FolderContentSnapshot other) {
+        return other != null
+                && Objects.equals(rootPath, other.rootPath)
+                && separator.equals(other.separator)
+                && lastModifiedDigested == other.lastModifiedDigested
+                && contentDigested == other.contentDigested
+                && Objects.equals(digestAlgorithm, other.digestAlgorithm)
+                && count == other.count
+                && Arrays.equals(paths, other.paths)
+                && Arrays.equals(lastModified, other.lastModified)
+                && Arrays.equals(sizes, other.sizes)
+                && Arrays.equals(fileKeys, other.fileKeys)
+                && digestLength == other.digestLength
+                && Arrays.equals(digests, other.digests)
+                && digested.equals(other.digested);
+    }
+
+    /**
+     * Writes the snapshot in the persisted format
+     *
+     * @param out the output stream
+     * @param key identifies the configuration the snapshot has been built for
+     * @throws IOException if the snapshot can't be written
+     */
+    public void writeTo(OutputStream out, String key) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FORMAT_MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeUTF(key);
+        data.writeBoolean(rootPath != null);
+        if (rootPath != null) {
+            data.writeUTF(rootPath);
+        }
+        data.writeUTF(separator);
+        data.writeBoolean(lastModifiedDigested);
+        data.writeBoolean(contentDigested);
+        data.writeBoolean(digestAlgorithm != null);
+        if (digestAlgorithm != null) {
+            data.writeUTF(digestAlgorithm);
+        }
+        data.writeInt(count);
+        data.writeInt(paths.length);
+        data.write(paths);
+        for (int restartOffset : restartOffsets) {
+            data.writeInt(restartOffset);
+        }
+        for (int i = 0; i < count; i++) {
+            data.writeLong(lastModified[i]);
+            data.writeLong(sizes[i]);
+            data.writeLong(fileKeys[i]);
+        }
+        data.writeInt(digestLength);
+        data.writeInt(digests.length);
+        data.write(digests);
+        long[] digestedWords = digested.toLongArray();
+        data.writeInt(digestedWords.length);
+        for (long word : digestedWords) {
+            data.writeLong(word);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo}
+     *
+     * @param in  the input stream
+     * @param key identifies the current configuration
+     * @return the snapshot, null if it has been written with another format or for another configuration
+     * @throws IOException if the snapshot can't be read or is corrupted
+     */
+    public static FolderContentSnapshot readFrom(InputStream in, String key) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != FORMAT_MAGIC || data.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        if (!key.equals(data.readUTF())) {
+            return null;
+        }
+        String rootPath = data.readBoolean() ? data.readUTF() : null;
+        String separator = data.readUTF();
+        boolean lastModifiedDigested = data.readBoolean();
+        boolean contentDigested = data.readBoolean();
+        String digestAlgorithm = data.readBoolean() ? data.readUTF() : null;
+        int count = data.readInt();
+        byte[] paths = readBytes(data, data.readInt());
+        //Each path is stored with at least its two lengths
+        checkRange("count", count, paths.length / 2);
+        int[] restartOffsets = new int[(count + RESTART_INTERVAL - 1) / RESTART_INTERVAL];
+        for (int i = 0; i < restartOffsets.length; i++) {
+            restartOffsets[i] = checkRange("restart offset", data.readInt(), paths.length);
+        }
+        long[] lastModified = new long[count];
+        long[] sizes = new long[count];
+        long[] fileKeys = new long[count];
+        for (int i = 0; i < count; i++) {
+            lastModified[i] = data.readLong();
+            sizes[i] = data.readLong();
+            fileKeys[i] = data.readLong();
+        }
+        int digestLength = checkRange("digest length", data.readInt(), MAX_DIGEST_LENGTH);
+        int digestsLength = data.readInt();
+        //The product is computed on longs, a corrupted count can't overflow it
+        long expectedDigestsLength = (long) count * digestLength;
+        if (digestsLength < 0 || expectedDigestsLength > Integer.MAX_VALUE || (digestsLength != 0 && digestsLength != expectedDigestsLength)) {
+            throw new IOException(String.format("Invalid length of the digests %d in the snapshot.", digestsLength));
+        }
+        byte[] digests = readBytes(data, digestsLength);
+        long[] digestedWords = new long[checkRange("digested words", data.readInt(), (count + Long.SIZE - 1) / Long.SIZE)];
+        for (int i = 0; i < digestedWords.length; i++) {
+            digestedWords[i] = data.readLong();
+        }
+        try {
+            return new FolderContentSnapshot(rootPath, separator, lastModifiedDigested, contentDigested, digestAlgorithm, count,
+                    paths, restartOffsets, lastModified, sizes, fileKeys, digestLength, digests, BitSet.valueOf(digestedWords));
+        } catch (RuntimeException e) {
+            //The paths can't be decoded
+            throw new IOException("The snapshot is corrupted.", e);
+        }
+    }
+
+    private static int checkRange(String name, int value, int max) throws IOException {
+        if (value < 0 || value > max) {
+            throw new IOException(String.format("Invalid %s %d in the snapshot.", name, value));
+        }
+        return value;
+    }
+
+    /**
+     * Reads a byte array, the buffer growing with the bytes actually read so a corrupted length fails at the end of the stream
+     */
+    private static byte[] readBytes(DataInputStream data, int length) throws IOException {
+        checkRange("length", length, Integer.MAX_VALUE - 8);
+        byte[] bytes = new byte[Math.min(length, READ_CHUNK_SIZE)];
+        data.readFully(bytes);
+        while (bytes.length < length) {
+            int read = bytes.length;
+            bytes = Arrays.copyOf(bytes, (int) Math.min(length, read * 2L));
+            data.readFully(bytes, read, bytes.length - read);
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks if a file or a folder of a previous snapshot has been modified or deleted in this snapshot.
+     * The folders with the same digest in both snapshots are skipped.
+     *
+     * @param previous          the previous snapshot
+     * @param checkLastModified true if a change of the last modification date triggers
+     * @param checkContent      true if a change of the content triggers
+     * @param log               the log object
+     * @return true if a change has been found
+     */
+    public boolean hasChangedSince(FolderContentSnapshot previous, boolean checkLastModified, boolean checkContent, XTriggerLog log) {
+        //The digests are only comparable if computed from the same information
+        boolean comparableDigests = previous.rootPath != null
+                && previous.rootPath.equals(rootPath)
+                && previous.separator.equals(separator)
+                && previous.lastModifiedDigested == lastModifiedDigested
+                && previous.contentDigested == contentDigested
+                && Objects.equals(previous.digestAlgorithm, digestAlgorithm)
+                && lastModifiedDigested == checkLastModified
+                && contentDigested == checkContent;
+
+        if (comparableDigests && Arrays.equals(previous.rootDigest, rootDigest)) {
+            return false;
+        }
+
+        //Both snapshots are sorted, the files are matched by walking them side by side
+        PathCursor previousCursor = previous.new PathCursor();
+        PathCursor cursor = new PathCursor();
+        String previousPrefix = (previous.rootPath == null) ? "" : previous.getRootPrefix();
+        int previousIndex = 0;
+        int index = 0;
+        int previousFolder = 0;
+        while (previousIndex < previous.count) {
+
+            //Skips the unchanged folders starting at this file, from the outermost one
+            if (comparableDigests) {
+                boolean skipped = false;
+                while (previousFolder < previous.folderPrefixes.length && previous.folderStarts[previousFolder] <= previousIndex) {
+                    int folder = (previous.folderStarts[previousFolder] == previousIndex)
+                            ? Arrays.binarySearch(folderPrefixes, previous.folderPrefixes[previousFolder]) : -1;
+                    if (folder >= 0 && previous.isSameFolderDigest(previousFolder, this, folder)) {
+                        previousIndex = previous.folderEnds[previousFolder];
+                        index = Math.max(index, folderEnds[folder]);
+                        skipped = true;
+                    }
+                    previousFolder++;
+                    if (skipped) {
+                        break;
+                    }
+                }
+                if (skipped) {
+                    continue;
+                }
+            }
+
+            previousCursor.moveTo(previousIndex);
+            String path = previousCursor.path();
+            int comparison = 1;
+            while (index < count) {
+                cursor.moveTo(index);
+                comparison = cursor.path().compareTo(path);
+                if (comparison >= 0) {
+                    break;
+                }
+                index++;
+            }
+
+            if (comparison != 0) {
+                log.info(String.format("The path '%s' doesn't exist anymore.", previousPrefix + path));
+                return true;
+            }
+
+            if (checkLastModified && (previous.lastModified[previousIndex] != lastModified[index])) {
+                log.info(String.format("The last modification date of '%s' has changed.", previousPrefix + path));
+                return true;
+            }
+
+            if (checkContent && previous.digested.get(previousIndex) && !previous.isSameDigest(previousIndex, this, index)) {
+                log.info(String.format("The content of '%s' has changed.", previousPrefix + path));
+                return true;
+            }
+
+            previousIndex++;
+            index++;
+        }
+
+        return false;
+    }
+
+    private boolean isSameFolderDigest(int folder, FolderContentSnapshot other, int otherFolder) {
+        int length = rootDigest.length;
+        for (int i = 0; i < length; i++) {
+            if (folderDigests[folder * length + i] != other.folderDigests[otherFolder * length + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
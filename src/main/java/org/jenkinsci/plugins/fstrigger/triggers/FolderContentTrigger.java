@@ -11,21 +11,29 @@ import hudson.util.SequentialExecutionQueue;
 import jenkins.MasterToSlaveFileCallable;
 import jenkins.model.Jenkins;
 import org.apache.commons.jelly.XMLOutput;
-import org.apache.tools.ant.types.DirSet;
-import org.apache.tools.ant.types.FileSet;
-import org.apache.tools.ant.types.resources.FileResource;
-import org.jenkinsci.lib.envinject.EnvInjectException;
-import org.jenkinsci.plugins.envinjectapi.util.EnvVarsResolver;
 import org.jenkinsci.plugins.xtriggerapi.AbstractTrigger;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerDescriptor;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerAction;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerDigestAlgorithm;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerFileHasher;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerFileScanner;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerFolderWatcher;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerHashingEngine;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerPollingContext;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerSampledFingerprint;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.nio.file.StandardCopyOption;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
@@ -41,6 +49,25 @@ public class FolderContentTrigger extends AbstractTrigger {
 
     private static final String CAUSE = "Triggered by a change to a folder";
 
+    /**
+     * System property giving the maximum estimated size in bytes of the snapshots kept in the JVM of a polling agent
+     */
+    public static final String MAX_NODE_SNAPSHOTS_SIZE_PROPERTY = FolderContentTrigger.class.getName() + ".maxNodeSnapshotsSize";
+
+    private static final long DEFAULT_MAX_NODE_SNAPSHOTS_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * The snapshots of the previous polls, kept in the JVM of a polling agent by job and folder configuration.
+     * In watch mode, the entry is the last full snapshot, only kept for reusing its digests at the next rescan.
+     * Each entry is a second copy of the snapshot recorded by the trigger on the controller, it costs about
+     * the UTF-8 relative paths of the files plus 24 bytes and a digest per file (see {@link FolderContentSnapshot#getMemorySize()}).
+     * The least recently used entries are evicted above {@link #MAX_NODE_SNAPSHOTS_SIZE_PROPERTY}.
+     * The built-in node doesn't keep any entry, it shares the snapshot of the trigger.
+     */
+    private static final LinkedHashMap<String, FolderContentSnapshot> NODE_SNAPSHOTS = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long nodeSnapshotsSize;
+
     /**
      * GUI fields
      */
@@ -50,11 +77,28 @@ public class FolderContentTrigger extends AbstractTrigger {
     private final boolean excludeCheckLastModificationDate;
     private final boolean excludeCheckContent;
     private final boolean excludeCheckFewerOrMoreFiles;
+    private boolean alwaysComputeContentDigest;
+    private int hashingParallelism;
+    private boolean watchFolder;
+    private String digestAlgorithm;
+    private int sampledFingerprintThreshold;
 
     /**
      * Memory fields
      */
-    private transient Map<String, FileInfo> md5Map = new HashMap<>();
+    private transient FolderContentSnapshot snapshot = FolderContentSnapshot.empty();
+
+    /**
+     * True when the snapshot persisted in the job directory must be read before the next poll
+     */
+    private transient boolean loadSnapshotOnPoll;
+
+    /**
+     * The node holding the watcher and the snapshot of the previous poll, and their identifier
+     */
+    private transient String nodeStateNodeName;
+
+    private transient String nodeStateId;
 
 
     @DataBoundConstructor
@@ -98,12 +142,139 @@ public class FolderContentTrigger extends AbstractTrigger {
         return excludeCheckFewerOrMoreFiles;
     }
 
+    @SuppressWarnings("unused")
+    public boolean isAlwaysComputeContentDigest() {
+        return alwaysComputeContentDigest;
+    }
+
+    /**
+     * When set, the content digest of every file is recomputed on each poll.
+     * Otherwise, a file is only read again when its size, last modification date or file key has changed.
+     */
+    @DataBoundSetter
+    public void setAlwaysComputeContentDigest(boolean alwaysComputeContentDigest) {
+        this.alwaysComputeContentDigest = alwaysComputeContentDigest;
+    }
+
+    @SuppressWarnings("unused")
+    public int getHashingParallelism() {
+        return hashingParallelism;
+    }
+
+    /**
+     * The number of threads used for computing the digests on the polling node.
+     * 0 uses the default parallelism of the node (see {@link FSTriggerHashingEngine#PARALLELISM_PROPERTY}).
+     */
+    @DataBoundSetter
+    public void setHashingParallelism(int hashingParallelism) {
+        this.hashingParallelism = Math.max(0, hashingParallelism);
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isWatchFolder() {
+        return watchFolder;
+    }
+
+    /**
+     * When set, the folder is watched on the polling node and a poll only checks the paths reported
+     * by the file system events since the previous poll.
+     */
+    @DataBoundSetter
+    public void setWatchFolder(boolean watchFolder) {
+        this.watchFolder = watchFolder;
+    }
+
+    @SuppressWarnings("unused")
+    public String getDigestAlgorithm() {
+        return getDigestAlgorithmType().getId();
+    }
+
+    /**
+     * The algorithm of the content digests, see {@link FSTriggerDigestAlgorithm}.
+     * Changing the algorithm records a new snapshot of the folder without triggering a build.
+     */
+    @DataBoundSetter
+    public void setDigestAlgorithm(String digestAlgorithm) {
+        this.digestAlgorithm = Util.fixEmpty(digestAlgorithm);
+    }
+
+    private FSTriggerDigestAlgorithm getDigestAlgorithmType() {
+        return FSTriggerDigestAlgorithm.get(digestAlgorithm);
+    }
+
+    @SuppressWarnings("unused")
+    public int getSampledFingerprintThreshold() {
+        return sampledFingerprintThreshold;
+    }
+
+    /**
+     * The size in MB from which only a sampled fingerprint of a file is computed, see {@link FSTriggerSampledFingerprint}.
+     * 0 always digests the whole content of the files.
+     */
+    @DataBoundSetter
+    public void setSampledFingerprintThreshold(int sampledFingerprintThreshold) {
+        this.sampledFingerprintThreshold = Math.max(0, sampledFingerprintThreshold);
+    }
+
+    /**
+     * @return the identifier of the content digests recorded in the snapshots, it includes the sampling settings
+     */
+    private String getContentDigestId() {
+        FSTriggerSampledFingerprint sampling = FSTriggerSampledFingerprint.forThreshold(sampledFingerprintThreshold);
+        return (sampling == null) ? getDigestAlgorithm() : getDigestAlgorithm() + "+" + sampling.getId();
+    }
+
     @Override
     protected File getLogFile() {
         if (job == null) return null;
         return new File(job.getRootDir(), "trigger-polling-folder.log");
     }
 
+    private File getSnapshotFile() {
+        if (job == null) return null;
+        return new File(job.getRootDir(), "trigger-polling-folder.snapshot");
+    }
+
+    /**
+     * Identifies the resolved configuration a persisted snapshot has been built for
+     */
+    private String getSnapshotKey(String path, String includes, String excludes) {
+        return String.join("|", path, String.valueOf(includes), String.valueOf(excludes));
+    }
+
+    private FolderContentSnapshot loadSnapshot(String key) {
+        File snapshotFile = getSnapshotFile();
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            return FolderContentSnapshot.readFrom(in, key);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Can't read the folder snapshot " + snapshotFile, ioe);
+            return null;
+        }
+    }
+
+    private void saveSnapshot(FolderContentSnapshot newSnapshot, String key) {
+        File snapshotFile = getSnapshotFile();
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            if (newSnapshot == null) {
+                Files.deleteIfExists(snapshotFile.toPath());
+                return;
+            }
+            File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                newSnapshot.writeTo(out, key);
+            }
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Can't write the folder snapshot " + snapshotFile, ioe);
+        }
+    }
+
     @Override
     protected Action[] getScheduledActions(Node node, XTriggerLog log) {
         return new Action[0];
@@ -120,9 +291,22 @@ public class FolderContentTrigger extends AbstractTrigger {
 
         private final long lastModified;
 
+        private final long size;
+
+        /**
+         * A hash of the file system identity of the file (the inode on Unix), 0 if not available
+         */
+        private final long fileKey;
+
         public FileInfo(String md5, long lastModified) {
+            this(md5, lastModified, -1, 0);
+        }
+
+        public FileInfo(String md5, long lastModified, long size, long fileKey) {
             this.md5 = md5;
             this.lastModified = lastModified;
+            this.size = size;
+            this.fileKey = fileKey;
         }
 
         public String getMd5() {
@@ -133,46 +317,192 @@ public class FolderContentTrigger extends AbstractTrigger {
             return lastModified;
         }
 
+        public long getSize() {
+            return size;
+        }
+
+        public long getFileKey() {
+            return fileKey;
+        }
+
+        /**
+         * Hashes the file key given by the file system
+         */
+        public static long hashFileKey(Object fileKey) {
+            if (fileKey == null) {
+                return 0;
+            }
+            //64-bit FNV-1a
+            long hash = 0xcbf29ce484222325L;
+            String value = fileKey.toString();
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        /**
+         * Checks if the given stat tuple matches the one recorded for this file
+         */
+        public boolean isSameStat(long size, long lastModified, long fileKey) {
+            return this.size == size
+                    && this.lastModified == lastModified
+                    && this.fileKey == fileKey;
+        }
+
+    }
+
+    /**
+     * The changes of a folder computed on the polling node:
+     * either a full snapshot, or the updated and removed paths since the previous poll.
+     * When the node holds the snapshot of the previous poll, the comparison is also made on the node
+     * and only the changed paths are sent back, with the fingerprint of the new snapshot.
+     */
+    static class FolderChanges implements Serializable {
+
+        private final FolderContentSnapshot snapshot;
+
+        private final Map<String, FileInfo> updatedFileInfos;
+
+        private final Set<String> removedPaths;
+
+        private final boolean unchanged;
+
+        /**
+         * The fingerprint of the snapshot the changes lead to, null if not known
+         */
+        private final String fingerprint;
+
+        /**
+         * The result of the comparison made on the node, null if not made
+         */
+        private final Boolean modified;
+
+        private FolderChanges(FolderContentSnapshot snapshot, Map<String, FileInfo> updatedFileInfos, Set<String> removedPaths, boolean unchanged, String fingerprint, Boolean modified) {
+            this.snapshot = snapshot;
+            this.updatedFileInfos = updatedFileInfos;
+            this.removedPaths = removedPaths;
+            this.unchanged = unchanged;
+            this.fingerprint = fingerprint;
+            this.modified = modified;
+        }
+
+        static FolderChanges snapshot(FolderContentSnapshot snapshot) {
+            return new FolderChanges(snapshot, null, null, false, null, null);
+        }
+
+        static FolderChanges comparedSnapshot(FolderContentSnapshot snapshot, Boolean modified) {
+            return new FolderChanges(snapshot, null, null, false, null, modified);
+        }
+
+        static FolderChanges delta(Map<String, FileInfo> updatedFileInfos, Set<String> removedPaths) {
+            return new FolderChanges(null, updatedFileInfos, removedPaths, false, null, null);
+        }
+
+        static FolderChanges comparedDelta(Map<String, FileInfo> updatedFileInfos, Set<String> removedPaths, String fingerprint, Boolean modified) {
+            return new FolderChanges(null, updatedFileInfos, removedPaths, false, fingerprint, modified);
+        }
+
+        static FolderChanges unchanged(Boolean modified) {
+            return new FolderChanges(null, null, null, true, null, modified);
+        }
+
+        /**
+         * Computes the new snapshot from the previous one
+         */
+        FolderContentSnapshot applyTo(FolderContentSnapshot previous) {
+            if (unchanged) {
+                return previous;
+            }
+            if (updatedFileInfos == null) {
+                return snapshot;
+            }
+            return previous.withChanges(updatedFileInfos, removedPaths);
+        }
+
+        /**
+         * Checks that the changes lead from the given snapshot to the snapshot of the node
+         */
+        boolean isApplicableTo(FolderContentSnapshot previous) {
+            return fingerprint == null || (previous != null && previous.getFingerprint() != null
+                    && fingerprint.equals(applyTo(previous).getFingerprint()));
+        }
+
+        boolean isCompared() {
+            return modified != null;
+        }
+
+        boolean isModified() {
+            return modified != null && modified;
+        }
     }
 
     @Override
     protected synchronized boolean checkIfModified(Node pollingNode, final XTriggerLog log) throws XTriggerException {
 
-        Map<String, String> envVars;
-        try {
-        	if( job != null ) {
-        		envVars = EnvVarsResolver.getPollingEnvVars((AbstractProject) job, pollingNode);
-        	} else {
-        		envVars = new HashMap<String , String>() ;
-        	}
-        } catch (EnvInjectException e) {
-            throw new XTriggerException(e);
-        }
+        Map<String, String> envVars = new FSTriggerPollingContext((Job) job, pollingNode).getEnvVars();
 
         String pathResolved = Util.replaceMacro(path, envVars);
         String includesResolved = Util.replaceMacro(includes, envVars);
         String excludesResolved = Util.replaceMacro(excludes, envVars);
+        String snapshotKey = (pathResolved == null) ? null : getSnapshotKey(pathResolved, includesResolved, excludesResolved);
+
+        //Restore the snapshot recorded before the restart
+        boolean recordOnly = false;
+        if (loadSnapshotOnPoll && snapshotKey != null) {
+            loadSnapshotOnPoll = false;
+            FolderContentSnapshot persistedSnapshot = loadSnapshot(snapshotKey);
+            if (persistedSnapshot != null) {
+                snapshot = persistedSnapshot;
+                offlineSlaveOnStartup = false;
+            } else {
+                recordOnly = true;
+            }
+        }
+
+        //Get the current information, compared on the node when possible
+        boolean compare = !recordOnly && !offlineSlaveOnStartup;
+        FolderChanges changes = getChanges(pollingNode, pathResolved, includesResolved, excludesResolved, compare, log);
+        FolderContentSnapshot newSnapshot = (changes == null) ? null : changes.applyTo(snapshot);
 
-        //Get the current information
-        Map<String, FileInfo> newMd5Map = getMd5Map(pollingNode, pathResolved, includesResolved, excludesResolved, log);
+        if (recordOnly) {
+            refreshMemoryInfo(newSnapshot, snapshotKey);
+            log.info("The recorded snapshot of the folder is missing or stale. Waiting for next schedule to check if there are modifications.");
+            return false;
+        }
 
         if (offlineSlaveOnStartup) {
-            refreshMemoryInfo(newMd5Map);
+            refreshMemoryInfo(newSnapshot, snapshotKey);
             log.info("Slave(s) were offline at startup. Waiting for next schedule to check if there are modifications.");
             offlineSlaveOnStartup = false;
             return false;
         }
 
-        boolean changed = checkIfModified(pollingNode, pathResolved, log, newMd5Map);
-        refreshMemoryInfo(newMd5Map);
+        boolean changed;
+        if (changes != null && changes.isCompared()) {
+            changed = changes.isModified();
+        } else {
+            changed = isModified(pathResolved, snapshot, newSnapshot, log);
+        }
+        refreshMemoryInfo(newSnapshot, snapshotKey);
         return changed;
     }
 
-    private void refreshMemoryInfo(Map<String, FileInfo> newMd5Map) throws XTriggerException {
-        md5Map = newMd5Map;
+    private void refreshMemoryInfo(FolderContentSnapshot newSnapshot, String snapshotKey) throws XTriggerException {
+        //Nothing to write when the folder is unchanged
+        if (snapshotKey != null && (newSnapshot == null || !newSnapshot.isSameAs(snapshot))) {
+            saveSnapshot(newSnapshot, snapshotKey);
+        }
+        snapshot = newSnapshot;
     }
 
-    private Map<String, FileInfo> getMd5Map(Node launcherNode, final String path, final String includes, final String excludes, final XTriggerLog log) throws XTriggerException {
+    /**
+     * Gets the changes of the folder with a single call to the node
+     *
+     * @return the changes, null if the node is offline
+     */
+    private FolderChanges getChanges(Node launcherNode, final String path, final String includes, final String excludes, final boolean compare, final XTriggerLog log) throws XTriggerException {
 
         if (path == null) {
             throw new XTriggerException("A folder path must be set.");
@@ -188,26 +518,263 @@ public class FolderContentTrigger extends AbstractTrigger {
             return null;
         }
 
-        Map<String, FileInfo> result;
+        //The node keeps the snapshot of the previous poll, only its fingerprint is sent for checking it is the recorded one
+        //In watch mode, the previous snapshot stays on the controller
+        final String previousFingerprint = (snapshot == null) ? null : snapshot.getFingerprint();
+        final boolean reuseDigests = !alwaysComputeContentDigest;
+        final boolean watch = watchFolder;
+        final boolean hasPreviousSnapshot = snapshot != null && !snapshot.isEmpty()
+                && getContentDigestId().equals(snapshot.getDigestAlgorithm());
+        final String watchId = getWatchId(path, includes, excludes);
+        //On the built-in node, the snapshot of the trigger is used instead of a copy kept for the node
+        final FolderContentSnapshot localSnapshot = rootPath.isRemote() ? null
+                : (snapshot == null) ? FolderContentSnapshot.empty() : snapshot;
+        rememberNodeState(launcherNode, watchId);
+
         try {
-            result = rootPath.act(new MasterToSlaveFileCallable<Map<String, FileInfo>>() {
+            FolderChanges changes = rootPath.act(new MasterToSlaveFileCallable<FolderChanges>() {
                 @Override
-                public Map<String, FileInfo> invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+                public FolderChanges invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
                     try {
-                        return getFileInfo(path, includes, excludes, log);
+                        if (watch) {
+                            return getWatchedChanges(watchId, path, includes, excludes, hasPreviousSnapshot, localSnapshot, reuseDigests, log);
+                        }
+                        return getComparedChanges(watchId, path, includes, excludes, previousFingerprint, localSnapshot, reuseDigests, compare, log);
                     } catch (XTriggerException fse) {
                         throw new RuntimeException(fse);
                     }
                 }
             });
+            if (!changes.isApplicableTo(snapshot)) {
+                log.info("The snapshot of the node doesn't match the recorded one. Checking the whole folder.");
+                changes = rootPath.act(new MasterToSlaveFileCallable<FolderChanges>() {
+                    @Override
+                    public FolderChanges invoke(File file, VirtualChannel channel) throws IOException, InterruptedException {
+                        try {
+                            return getComparedChanges(watchId, path, includes, excludes, null, localSnapshot, reuseDigests, compare, log);
+                        } catch (XTriggerException fse) {
+                            throw new RuntimeException(fse);
+                        }
+                    }
+                });
+            }
+            return changes;
         } catch (IOException | InterruptedException e) {
             throw new XTriggerException(e);
         }
+    }
 
-        return result;
+    /**
+     * Gets the changes since the snapshot kept on the node by the previous poll.
+     * The whole snapshot is returned, for a comparison on the controller, when the node doesn't have the recorded one.
+     * On the built-in node, the whole snapshot is returned with the result of the comparison, no copy being kept.
+     *
+     * @param localSnapshot the snapshot of the trigger when polling on the built-in node, null otherwise
+     */
+    private FolderChanges getComparedChanges(String snapshotId, String path, String includes, String excludes, String previousFingerprint,
+                                             FolderContentSnapshot localSnapshot, boolean reuseDigests, boolean compare, XTriggerLog log) throws XTriggerException {
+        FolderContentSnapshot nodeSnapshot = (localSnapshot != null) ? localSnapshot : getNodeSnapshot(snapshotId);
+        FolderContentSnapshot previous = (nodeSnapshot != null && previousFingerprint != null
+                && previousFingerprint.equals(nodeSnapshot.getFingerprint())) ? nodeSnapshot : null;
+
+        FolderContentSnapshot newSnapshot = getFolderSnapshot(path, includes, excludes, reuseDigests ? nodeSnapshot : null, log);
+        if (newSnapshot == null) {
+            removeNodeSnapshot(snapshotId);
+            return FolderChanges.snapshot(null);
+        }
+        Boolean modified = (compare && previous != null) ? isModified(path, previous, newSnapshot, log) : null;
+        if (localSnapshot != null) {
+            return FolderChanges.comparedSnapshot(newSnapshot, modified);
+        }
+        putNodeSnapshot(snapshotId, newSnapshot);
+        if (previous == null) {
+            return FolderChanges.snapshot(newSnapshot);
+        }
+
+        if (newSnapshot.hasSameContent(previous)) {
+            return FolderChanges.unchanged(modified);
+        }
+        Map<String, FileInfo> updatedFileInfos = new LinkedHashMap<>();
+        Set<String> removedPaths = new LinkedHashSet<>();
+        newSnapshot.collectChangesSince(previous, updatedFileInfos, removedPaths);
+        return FolderChanges.comparedDelta(updatedFileInfos, removedPaths, newSnapshot.getFingerprint(), modified);
+    }
+
+    /**
+     * Records where the state of the folder is kept, the state of a previous node or configuration is released
+     */
+    private void rememberNodeState(Node node, String id) {
+        String nodeName = node.getNodeName();
+        if (nodeStateId != null && !(nodeStateId.equals(id) && Objects.equals(nodeStateNodeName, nodeName))) {
+            releaseNodeState();
+        }
+        nodeStateNodeName = nodeName;
+        nodeStateId = id;
+    }
+
+    private void releaseNodeState() {
+        String id = nodeStateId;
+        String nodeName = nodeStateNodeName;
+        nodeStateId = null;
+        nodeStateNodeName = null;
+        if (id == null) {
+            return;
+        }
+        Jenkins jenkins = Jenkins.get();
+        Node node = Util.fixEmpty(nodeName) == null ? jenkins : jenkins.getNode(nodeName);
+        FilePath rootPath = (node == null) ? null : node.getRootPath();
+        //The state of an offline node is lost with its JVM
+        if (rootPath == null) {
+            return;
+        }
+        try {
+            rootPath.act(new NodeStateRelease(id));
+        } catch (IOException | InterruptedException e) {
+            LOGGER.log(Level.WARNING, "Can't release the state of the monitored folder on the node " + nodeName, e);
+        }
+    }
+
+    /**
+     * Closes the watcher and forgets the snapshot of a folder on the polling node
+     */
+    private static class NodeStateRelease extends MasterToSlaveFileCallable<Void> {
+
+        private final String id;
+
+        NodeStateRelease(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public Void invoke(File file, VirtualChannel channel) {
+            FSTriggerFolderWatcher.release(id);
+            removeNodeSnapshot(id);
+            return null;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    static FolderContentSnapshot getNodeSnapshot(String id) {
+        synchronized (NODE_SNAPSHOTS) {
+            return NODE_SNAPSHOTS.get(id);
+        }
+    }
+
+    static void putNodeSnapshot(String id, FolderContentSnapshot nodeSnapshot) {
+        long maxSize = Long.getLong(MAX_NODE_SNAPSHOTS_SIZE_PROPERTY, DEFAULT_MAX_NODE_SNAPSHOTS_SIZE);
+        synchronized (NODE_SNAPSHOTS) {
+            removeNodeSnapshot(id);
+            NODE_SNAPSHOTS.put(id, nodeSnapshot);
+            nodeSnapshotsSize += nodeSnapshot.getMemorySize();
+            Iterator<FolderContentSnapshot> eldest = NODE_SNAPSHOTS.values().iterator();
+            while (nodeSnapshotsSize > maxSize && eldest.hasNext()) {
+                nodeSnapshotsSize -= eldest.next().getMemorySize();
+                eldest.remove();
+            }
+        }
+    }
+
+    static void removeNodeSnapshot(String id) {
+        synchronized (NODE_SNAPSHOTS) {
+            FolderContentSnapshot removed = NODE_SNAPSHOTS.remove(id);
+            if (removed != null) {
+                nodeSnapshotsSize -= removed.getMemorySize();
+            }
+        }
+    }
+
+    private String getWatchId(String path, String includes, String excludes) {
+        String jobName = (job == null) ? null : job.getFullName();
+        return String.join("|", String.valueOf(jobName), path, String.valueOf(includes), String.valueOf(excludes));
+    }
+
+    /**
+     * Gets the changes reported by the watcher of the folder.
+     * A full snapshot is taken when the folder is not watched yet, or when the events are not complete.
+     *
+     * @param localSnapshot the snapshot of the trigger when polling on the built-in node, null otherwise
+     */
+    private FolderChanges getWatchedChanges(String watchId, String path, String includes, String excludes, boolean hasPreviousSnapshot,
+                                            FolderContentSnapshot localSnapshot, boolean reuseDigests, XTriggerLog log) throws XTriggerException {
+
+        File folder = new File(path);
+        if (!folder.isDirectory()) {
+            FSTriggerFolderWatcher.release(watchId);
+            return getWatchedSnapshot(watchId, path, includes, excludes, localSnapshot, reuseDigests, log);
+        }
+
+        FSTriggerFolderWatcher watcher;
+        FSTriggerFolderWatcher.Events events;
+        try {
+            watcher = FSTriggerFolderWatcher.get(watchId, folder, includes, excludes);
+            events = watcher.poll();
+        } catch (IOException ioe) {
+            FSTriggerFolderWatcher.release(watchId);
+            log.info(String.format("%nThe folder '%s' can't be watched (%s). Checking the whole folder.", path, ioe.getMessage()));
+            return getWatchedSnapshot(watchId, path, includes, excludes, localSnapshot, reuseDigests, log);
+        }
+
+        if (events.isRescanRequired() || !hasPreviousSnapshot) {
+            if (events.isRescanRequired()) {
+                log.info(String.format("%n%s Checking the whole folder.", events.getRescanReason()));
+            }
+            return getWatchedSnapshot(watchId, path, includes, excludes, localSnapshot, reuseDigests, log);
+        }
+
+        log.info(String.format("%nChecking the %d changed path(s) of the watched folder '%s'", events.getChangedPaths().size(), path));
+        Map<String, FileInfo> updatedFileInfos = new LinkedHashMap<>();
+        Set<String> removedPaths = new LinkedHashSet<>();
+        List<File> filesToDigest = new ArrayList<>();
+        for (File changedPath : events.getChangedPaths()) {
+            if (!changedPath.exists()) {
+                removedPaths.add(changedPath.getAbsolutePath());
+            } else if (changedPath.isDirectory()) {
+                if (watcher.isMonitoredDirectory(changedPath)) {
+                    updatedFileInfos.put(changedPath.getAbsolutePath(), new FileInfo(null, changedPath.lastModified()));
+                }
+            } else if (watcher.isMonitoredFile(changedPath)) {
+                processFile(updatedFileInfos, changedPath, null, filesToDigest);
+            }
+        }
+        computeDigests(log, updatedFileInfos, filesToDigest);
+        return FolderChanges.delta(updatedFileInfos, removedPaths);
     }
 
-    private Map<String, FileInfo> getFileInfo(String path, String includes, String excludes, XTriggerLog log) throws XTriggerException {
+    /**
+     * Takes a full snapshot of a watched folder, the digests of the previous full snapshot are reused for the unchanged files.
+     * On an agent, the previous full snapshot is the one kept for the node: it is not updated by the changes reported
+     * by the watcher, but its digests are only reused when the stat of a file is unchanged.
+     */
+    FolderChanges getWatchedSnapshot(String watchId, String path, String includes, String excludes,
+                                             FolderContentSnapshot localSnapshot, boolean reuseDigests, XTriggerLog log) throws XTriggerException {
+        FolderContentSnapshot baseline = !reuseDigests ? null : (localSnapshot != null) ? localSnapshot : getNodeSnapshot(watchId);
+        FolderContentSnapshot newSnapshot = getFolderSnapshot(path, includes, excludes, baseline, log);
+        if (localSnapshot == null && newSnapshot != null) {
+            putNodeSnapshot(watchId, newSnapshot);
+        } else {
+            removeNodeSnapshot(watchId);
+        }
+        return FolderChanges.snapshot(newSnapshot);
+    }
+
+    /**
+     * Builds the snapshot of a folder, the digests of the baseline are reused for the files with an unchanged stat
+     */
+    FolderContentSnapshot getFolderSnapshot(String path, String includes, String excludes, FolderContentSnapshot baseline, XTriggerLog log) throws XTriggerException {
+        String algorithmId = getContentDigestId();
+        //Digests computed with another algorithm can't be reused
+        if (baseline != null && !algorithmId.equals(baseline.getDigestAlgorithm())) {
+            baseline = null;
+        }
+        Map<String, FileInfo> fileInfos = getFileInfo(path, includes, excludes, baseline, log);
+        if (fileInfos == null) {
+            return null;
+        }
+        return FolderContentSnapshot.build(path, fileInfos, !excludeCheckLastModificationDate, !excludeCheckContent, algorithmId);
+    }
+
+    private Map<String, FileInfo> getFileInfo(String path, String includes, String excludes, FolderContentSnapshot baseline, XTriggerLog log) throws XTriggerException {
 
         log.info(String.format("%nTrying to monitor the folder '%s'", path));
 
@@ -220,57 +787,98 @@ public class FolderContentTrigger extends AbstractTrigger {
             return null;
         }
 
-        Map<String, FileInfo> result = new HashMap<>();
+        Map<String, FileInfo> result = new LinkedHashMap<>();
         if (includes == null) {
             includes = "**/*.*, **/*";
         }
 
         //Process Directories
-        DirSet dirSet = new DirSet();
-        dirSet.setProject(new org.apache.tools.ant.Project());
-        dirSet.setDir(new File(path));
-        dirSet.setIncludes("*");
-        if (excludes != null) {
-            dirSet.setExcludes(excludes);
-        }
-        for (Iterator it = dirSet.iterator(); it.hasNext(); ) {
-            FileResource fileResource = (FileResource) it.next();
-            processDirectoryResource(log, result, fileResource);
+        try {
+            new FSTriggerFileScanner("*", excludes).scan(folder, new FSTriggerFileScanner.Visitor() {
+                @Override
+                public void visitFile(File file, BasicFileAttributes attributes) {
+                }
+
+                @Override
+                public void visitDirectory(File dir, BasicFileAttributes attributes) {
+                    result.put(dir.getAbsolutePath(), new FileInfo(null, attributes.lastModifiedTime().toMillis()));
+                }
+            });
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
         }
 
         //Process files
-        FileSet fileSet = Util.createFileSet(new File(path), includes, excludes);
-        for (Iterator it = fileSet.iterator(); it.hasNext(); ) {
-            FileResource fileResource = (FileResource) it.next();
-            processFileResource(log, result, fileResource);
+        List<File> filesToDigest = new ArrayList<>();
+        try {
+            new FSTriggerFileScanner(includes, excludes).scan(folder,
+                    (file, attributes) -> processFile(result, file, attributes, baseline, filesToDigest));
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        }
+
+        computeDigests(log, result, filesToDigest);
+
+        if (baseline != null) {
+            log.info(String.format("The content of %d file(s) has been read, the other digests have been reused.", filesToDigest.size()));
         }
         return result;
     }
 
-    private void processDirectoryResource(XTriggerLog log, Map<String, FileInfo> result, FileResource folderResource) throws XTriggerException {
-        if (!folderResource.isExists()) {
-            log.info(String.format("%nThe folder '%s' doesn't exist anymore ", folderResource.getFile().getPath()));
-        } else {
-            FileInfo fileInfo = new FileInfo(null, folderResource.getLastModified());
-            result.put(folderResource.getFile().getAbsolutePath(), fileInfo);
+    /**
+     * Computes the missing digests of the given files with the hashing engine
+     */
+    private void computeDigests(XTriggerLog log, Map<String, FileInfo> result, List<File> filesToDigest) throws XTriggerException {
+        FSTriggerHashingEngine hashingEngine = new FSTriggerHashingEngine(hashingParallelism);
+        final FSTriggerDigestAlgorithm algorithm = getDigestAlgorithmType();
+        final FSTriggerSampledFingerprint sampling = FSTriggerSampledFingerprint.forThreshold(sampledFingerprintThreshold);
+        List<String> digests;
+        try {
+            digests = hashingEngine.computeAll(filesToDigest, file -> FSTriggerFileHasher.digest(file, algorithm, sampling));
+        } catch (IOException | InterruptedException e) {
+            throw new XTriggerException(e);
+        }
+        for (int i = 0; i < filesToDigest.size(); i++) {
+            String filePath = filesToDigest.get(i).getAbsolutePath();
+            FileInfo statInfo = result.get(filePath);
+            result.put(filePath, new FileInfo(digests.get(i), statInfo.getLastModified(), statInfo.getSize(), statInfo.getFileKey()));
+        }
+
+        if (hashingEngine.getParallelism() > 1 && !filesToDigest.isEmpty()) {
+            log.info(String.format("The digests have been computed with %d threads.", hashingEngine.getParallelism()));
         }
     }
 
-    private void processFileResource(XTriggerLog log, Map<String, FileInfo> result, FileResource fileResource) throws XTriggerException {
-        if (!fileResource.isExists()) {
-            log.info(String.format("%nThe file '%s' doesn't exist anymore ", fileResource.getFile().getPath()));
-        } else {
-            String currentMd5;
-            try {
-                FileInputStream fis = new FileInputStream(fileResource.getFile());
-                currentMd5 = Util.getDigestOf(fis);
-                fis.close();
-            } catch (IOException e) {
-                throw new XTriggerException(e);
-            }
-            FileInfo fileInfo = new FileInfo(currentMd5, fileResource.getLastModified());
-            result.put(fileResource.getFile().getAbsolutePath(), fileInfo);
+    private void processFile(Map<String, FileInfo> result, File file, FolderContentSnapshot baseline, List<File> filesToDigest) throws XTriggerException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new XTriggerException(e);
         }
+        processFile(result, file, attributes, baseline, filesToDigest);
+    }
+
+    /**
+     * Records the information of a file.
+     * When the digest of the previous poll can't be reused, the file is added to the files to digest.
+     */
+    private void processFile(Map<String, FileInfo> result, File file, BasicFileAttributes attributes, FolderContentSnapshot baseline, List<File> filesToDigest) {
+        String filePath = file.getAbsolutePath();
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long fileKey = FileInfo.hashFileKey(attributes.fileKey());
+
+        //Unchanged stat tuple, the content is not read again
+        FileInfo previousFileInfo = (baseline == null) ? null : baseline.get(filePath);
+        if (previousFileInfo != null && previousFileInfo.getMd5() != null && previousFileInfo.isSameStat(size, lastModified, fileKey)) {
+            result.put(filePath, previousFileInfo);
+            return;
+        }
+
+        //The digest is computed afterwards by the hashing engine
+        result.put(filePath, new FileInfo(null, lastModified, size, fileKey));
+        filesToDigest.add(file);
     }
 
     @Override
@@ -278,93 +886,41 @@ public class FolderContentTrigger extends AbstractTrigger {
         return CAUSE;
     }
 
-    private boolean checkIfModified(Node launcherNode, String path, final XTriggerLog log, final Map<String, FileInfo> newMd5Map) throws XTriggerException {
-
-        assert launcherNode != null;
-        assert launcherNode.getRootPath() != null;
+    private boolean isModified(String path, FolderContentSnapshot previous, FolderContentSnapshot newSnapshot, XTriggerLog log) {
 
         //The folder doesn't exist anymore (or others), do not trigger the build
-        if (newMd5Map == null) {
+        if (newSnapshot == null) {
             log.info("The directory '" + new File(path) + "' doesn't exist.");
             return false;
         }
 
         //No new files matching criterion, we don't trigger the build
-        if (newMd5Map.isEmpty()) {
+        if (newSnapshot.isEmpty()) {
             log.info("The folder '" + new File(path) + "' does not contain any files matching the includes/excludes information.");
             return false;
         }
 
         //There was no any files for criterion and now there are some files
-        if (this.md5Map == null) {
+        if (previous == null) {
             log.info("The folder '" + new File(path) + "' contains new files matching the includes/excludes information.");
             return true;
         }
 
-        //There are more or fewer files
-        if (!excludeCheckFewerOrMoreFiles && this.md5Map.size() != newMd5Map.size()) {
-            log.info("The folder '" + new File(path) + "' content has changed.");
-            return true;
-        }
-
-        FilePath rootPath = launcherNode.getRootPath();
-        if (rootPath == null) {
-            log.info("The node is now offline. Skipping");
+        //The digests of the previous snapshot have been computed with another algorithm
+        if (previous.getDigestAlgorithm() != null && !previous.getDigestAlgorithm().equals(newSnapshot.getDigestAlgorithm())) {
+            log.info(String.format("The digest algorithm has changed from %s to %s. Recording a new snapshot of the folder.",
+                    previous.getDigestAlgorithm(), newSnapshot.getDigestAlgorithm()));
             return false;
         }
 
-        //Check each file
-        boolean isTriggering;
-        try {
-            final Map<String, FileInfo> originMd5Map = md5Map;
-            isTriggering = rootPath.act(new MasterToSlaveFileCallable<Boolean>() {
-                @Override
-                public Boolean invoke(File nodePath, VirtualChannel channel) throws IOException, InterruptedException {
-                    return checkIfModifiedFile(log, originMd5Map, newMd5Map);
-                }
-            });
-        } catch (IOException | InterruptedException ioe) {
-            throw new XTriggerException(ioe);
-        }
-
-        return isTriggering;
-    }
-
-    private boolean checkIfModifiedFile(XTriggerLog log, Map<String, FileInfo> originMd5Map, Map<String, FileInfo> newMd5Map) {
-
-        assert log != null;
-        assert originMd5Map != null;
-        assert newMd5Map != null;
-
-        //Comparing each file
-        for (Map.Entry<String, FileInfo> entry : originMd5Map.entrySet()) {
-
-            String originFilePath = entry.getKey();
-            FileInfo originFileInfo = entry.getValue();
-            assert originFileInfo != null;
-
-            //Checks if the newMd5Map contains the originFilePath
-            FileInfo newFileInfo = newMd5Map.get(originFilePath);
-            if (newFileInfo == null) {
-                log.info(String.format("The path '%s' doesn't exist anymore.", originFilePath));
-                return true;
-            }
-
-            //Checks if the file from the new compute has been modified
-            if (!excludeCheckLastModificationDate && (originFileInfo.getLastModified() != newFileInfo.getLastModified())) {
-                log.info(String.format("The last modification date of '%s' has changed.", originFilePath));
-                return true;
-            }
-
-            //Checks it the content file from the new compute has been modified
-            if (!excludeCheckContent && (originFileInfo.getMd5() != null && !originFileInfo.getMd5().equals(newFileInfo.getMd5()))) {
-                log.info(String.format("The content of '%s' has changed.", originFilePath));
-                return true;
-            }
+        //There are more or fewer files
+        if (!excludeCheckFewerOrMoreFiles && previous.size() != newSnapshot.size()) {
+            log.info("The folder '" + new File(path) + "' content has changed.");
+            return true;
         }
 
-        return false;
-
+        //Check each file, the unchanged sub folders are skipped
+        return newSnapshot.hasChangedSince(previous, !excludeCheckLastModificationDate, !excludeCheckContent, log);
     }
 
     @Override
@@ -372,8 +928,8 @@ public class FolderContentTrigger extends AbstractTrigger {
 
         Map<String, String> envVars = null;
         try {
-            envVars = EnvVarsResolver.getPollingEnvVars((AbstractProject) project, pollingNode);
-        } catch (EnvInjectException e) {
+            envVars = new FSTriggerPollingContext((Job) project, pollingNode).getEnvVars();
+        } catch (XTriggerException e) {
             //Ignore the exception process, just log it
             LOGGER.log(Level.SEVERE, e.getMessage());
         }
@@ -382,18 +938,35 @@ public class FolderContentTrigger extends AbstractTrigger {
         String includesResolved = Util.replaceMacro(includes, envVars);
         String excludesResolved = Util.replaceMacro(excludes, envVars);
 
+        /**
+         * On a restart, the snapshot persisted in the job directory is read at the first poll.
+         * The folder is only read again when there is no such snapshot.
+         */
+        File snapshotFile = getSnapshotFile();
+        if (!newInstance && pathResolved != null && snapshotFile != null && snapshotFile.isFile()) {
+            loadSnapshotOnPoll = true;
+            return;
+        }
+
         /**
          * Records a md5 for each file of the folder that matches includes and excludes pattern
          */
         try {
-            Map<String, FileInfo> md5Map = getMd5Map(pollingNode, pathResolved, includesResolved, excludesResolved, log);
-            refreshMemoryInfo(md5Map);
+            FolderChanges changes = getChanges(pollingNode, pathResolved, includesResolved, excludesResolved, false, log);
+            FolderContentSnapshot startSnapshot = (changes == null) ? null : changes.applyTo(snapshot);
+            refreshMemoryInfo(startSnapshot, (pathResolved == null) ? null : getSnapshotKey(pathResolved, includesResolved, excludesResolved));
         } catch (XTriggerException fse) {
             LOGGER.log(Level.SEVERE, "Error on trigger startup " + fse.getMessage());
             fse.printStackTrace();
         }
     }
 
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        releaseNodeState();
+    }
+
     @Override
     protected String getName() {
         return "FSTrigger";
@@ -476,10 +1049,15 @@ public class FolderContentTrigger extends AbstractTrigger {
             return "/plugin/fstrigger/help-monitorFolder.html";
         }
 
+        @SuppressWarnings("unused")
+        public FSTriggerDigestAlgorithm[] getDigestAlgorithms() {
+            return FSTriggerDigestAlgorithm.values();
+        }
+
     }
     protected Object readResolve() throws ObjectStreamException {
         super.readResolve();
-        this.md5Map = new HashMap<>();
+        this.snapshot = FolderContentSnapshot.empty();
         return this;
     }
     private static final long serialVersionUID = 1L;
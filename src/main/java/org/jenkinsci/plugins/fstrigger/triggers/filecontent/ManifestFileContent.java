@@ -1,6 +1,7 @@
 package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentConsumer;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 
@@ -95,6 +96,19 @@ public abstract class ManifestFileContent extends PropertiesFileContent {
         this.attributes = computeAttributesObject(file);
     }
 
+    /**
+     * The manifest is not the content of the file, the type reads the file by itself
+     */
+    @Override
+    protected FSTriggerContentConsumer newInitConsumer(File file) {
+        return null;
+    }
+
+    @Override
+    protected FSTriggerContentConsumer newCheckConsumer(File file, XTriggerLog log) {
+        return null;
+    }
+
     @Override
     protected boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException {
 
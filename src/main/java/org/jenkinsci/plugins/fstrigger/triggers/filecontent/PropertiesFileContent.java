@@ -5,16 +5,21 @@ import hudson.Util;
 import hudson.util.FormValidation;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentConsumer;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileTypeDescriptor;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Map;
@@ -101,9 +106,17 @@ public class PropertiesFileContent extends FSTriggerContentFileType {
     }
 
     private Properties computePropertiesObject(File file) throws XTriggerException {
+        try {
+            return computePropertiesObject(new FileInputStream(file), file);
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        }
+    }
+
+    private Properties computePropertiesObject(InputStream input, File file) throws XTriggerException {
 
         Properties propsReader = new Properties();
-        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
             propsReader.load(reader);
         } catch (IOException ioe) {
             throw new XTriggerException(ioe);
@@ -139,8 +152,20 @@ public class PropertiesFileContent extends FSTriggerContentFileType {
 
     @Override
     protected boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException {
+        return isTriggeringBuild(computePropertiesObject(file), log);
+    }
+
+    @Override
+    protected FSTriggerContentConsumer newInitConsumer(File file) {
+        return new PropertiesConsumer(file, null);
+    }
 
-        Properties newProperties = computePropertiesObject(file);
+    @Override
+    protected FSTriggerContentConsumer newCheckConsumer(File file, XTriggerLog log) {
+        return new PropertiesConsumer(file, log);
+    }
+
+    private boolean isTriggeringBuild(Properties newProperties, XTriggerLog log) {
         assert newProperties != null;
 
         //Compare the properties objects
@@ -172,6 +197,48 @@ public class PropertiesFileContent extends FSTriggerContentFileType {
     }
 
 
+    /**
+     * Loads the properties from the content pushed by the caller
+     */
+    private class PropertiesConsumer implements FSTriggerContentConsumer {
+
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        private final File file;
+
+        /**
+         * The log of the check, null for a recording
+         */
+        private final XTriggerLog log;
+
+        private PropertiesConsumer(File file, XTriggerLog log) {
+            this.file = file;
+            this.log = log;
+        }
+
+        @Override
+        public void update(ByteBuffer chunk) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            content.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean complete() throws XTriggerException {
+            Properties newProperties = computePropertiesObject(new ByteArrayInputStream(content.toByteArray()), file);
+            if (log == null) {
+                properties = newProperties;
+                return false;
+            }
+            return isTriggeringBuild(newProperties, log);
+        }
+    }
+
     @Extension
     @SuppressWarnings("unused")
     public static class PropertiesFileContentDescriptor extends FSTriggerContentFileTypeDescriptor<PropertiesFileContent> {
@@ -3,34 +3,70 @@ package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
 
 import hudson.Extension;
 import hudson.Util;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerDigest;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerDigestAlgorithm;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerFileHasher;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerSampledFingerprint;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentConsumer;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileTypeDescriptor;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * @author Gregory Boissinot
  */
 public class SimpleFileContent extends FSTriggerContentFileType {
 
+    /**
+     * GUI fields
+     */
+    private String digestAlgorithm;
+    private int sampledFingerprintThreshold;
+
     /**
      * Memory field for detection
+     * The digests computed with another algorithm than MD5, or sampled, are prefixed by the digest identifier
      */
-    private transient String md5;
+    private transient String digest;
 
     @DataBoundConstructor
     @SuppressWarnings("unused")
     public SimpleFileContent() {
     }
 
+    @SuppressWarnings("unused")
+    public String getDigestAlgorithm() {
+        return FSTriggerDigestAlgorithm.get(digestAlgorithm).getId();
+    }
+
+    @DataBoundSetter
+    public void setDigestAlgorithm(String digestAlgorithm) {
+        this.digestAlgorithm = Util.fixEmpty(digestAlgorithm);
+    }
+
+    @SuppressWarnings("unused")
+    public int getSampledFingerprintThreshold() {
+        return sampledFingerprintThreshold;
+    }
+
+    /**
+     * The size in MB from which only a sampled fingerprint of the file is computed, 0 for always digesting the whole content
+     */
+    @DataBoundSetter
+    public void setSampledFingerprintThreshold(int sampledFingerprintThreshold) {
+        this.sampledFingerprintThreshold = Math.max(0, sampledFingerprintThreshold);
+    }
+
     @Override
     public Object getMemoryInfo() {
-        return md5;
+        return digest;
     }
 
     @Override
@@ -38,34 +74,72 @@ public class SimpleFileContent extends FSTriggerContentFileType {
         if (!(memoryInfo instanceof String)) {
             throw new IllegalArgumentException(String.format("The memory info %s object is not a String object.", memoryInfo));
         }
-        this.md5 = (String) memoryInfo;
+        this.digest = (String) memoryInfo;
     }
 
-    @Override
-    protected void initForContent(File file) throws XTriggerException {
+    private String computeDigest(File file) throws XTriggerException {
+        FSTriggerDigestAlgorithm algorithm = FSTriggerDigestAlgorithm.get(digestAlgorithm);
+        FSTriggerSampledFingerprint sampling = FSTriggerSampledFingerprint.forThreshold(sampledFingerprintThreshold);
         try {
-            FileInputStream fis = new FileInputStream(file);
-            md5 = Util.getDigestOf(fis);
-            fis.close();
+            return formatDigest(algorithm, sampling, FSTriggerFileHasher.digest(file, algorithm, sampling));
         } catch (IOException fne) {
             throw new XTriggerException(fne);
         }
     }
 
+    private static String formatDigest(FSTriggerDigestAlgorithm algorithm, FSTriggerSampledFingerprint sampling, String value) {
+        if (sampling != null) {
+            return algorithm.getId() + "+" + sampling.getId() + ":" + value;
+        }
+        return (algorithm == FSTriggerDigestAlgorithm.MD5) ? value : algorithm.getId() + ":" + value;
+    }
+
+    private static String getAlgorithmId(String recordedDigest) {
+        int index = recordedDigest.indexOf(':');
+        return (index == -1) ? FSTriggerDigestAlgorithm.MD5.getId() : recordedDigest.substring(0, index);
+    }
+
+    @Override
+    protected void initForContent(File file) throws XTriggerException {
+        digest = computeDigest(file);
+    }
+
     @Override
     protected boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException {
-        String newComputedMd5;
-        try {
-            FileInputStream fis = new FileInputStream(file);
-            newComputedMd5 = Util.getDigestOf(fis);
-            fis.close();
-        } catch (IOException fne) {
-            throw new XTriggerException(fne);
+        return isTriggeringBuild(file, computeDigest(file), log);
+    }
+
+    /**
+     * The sampled fingerprint reads ranges of the file, the type reads the file by itself
+     */
+    @Override
+    protected FSTriggerContentConsumer newInitConsumer(File file) {
+        if (FSTriggerSampledFingerprint.forThreshold(sampledFingerprintThreshold) != null) {
+            return null;
+        }
+        return new DigestConsumer(file, null);
+    }
+
+    @Override
+    protected FSTriggerContentConsumer newCheckConsumer(File file, XTriggerLog log) {
+        if (FSTriggerSampledFingerprint.forThreshold(sampledFingerprintThreshold) != null) {
+            return null;
         }
+        return new DigestConsumer(file, log);
+    }
+
+    private boolean isTriggeringBuild(File file, String newComputedDigest, XTriggerLog log) {
 
-        assert md5 != null;
+        assert digest != null;
 
-        if (!newComputedMd5.equals(md5)) {
+        //The previous digest has been computed with another algorithm
+        if (!getAlgorithmId(digest).equals(getAlgorithmId(newComputedDigest))) {
+            log.info(String.format("The digest algorithm of the file '%s' has changed. Recording the new digest.", file.getPath()));
+            digest = newComputedDigest;
+            return false;
+        }
+
+        if (!newComputedDigest.equals(digest)) {
             String msg = "The content of the file '%s' has changed.";
             log.info(String.format(msg, file.getPath()));
             return true;
@@ -74,6 +148,48 @@ public class SimpleFileContent extends FSTriggerContentFileType {
         return false;
     }
 
+    /**
+     * Computes the digest of the whole content pushed by the caller
+     */
+    private class DigestConsumer implements FSTriggerContentConsumer {
+
+        private final FSTriggerDigestAlgorithm algorithm = FSTriggerDigestAlgorithm.get(digestAlgorithm);
+
+        private final FSTriggerDigest running = algorithm.newDigest();
+
+        private final File file;
+
+        /**
+         * The log of the check, null for a recording
+         */
+        private final XTriggerLog log;
+
+        private DigestConsumer(File file, XTriggerLog log) {
+            this.file = file;
+            this.log = log;
+        }
+
+        @Override
+        public void update(ByteBuffer content) {
+            running.update(content);
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean complete() {
+            String newComputedDigest = formatDigest(algorithm, null, FSTriggerDigestAlgorithm.toHex(running.digest()));
+            if (log == null) {
+                digest = newComputedDigest;
+                return false;
+            }
+            return isTriggeringBuild(file, newComputedDigest, log);
+        }
+    }
+
     @Extension
     @SuppressWarnings("unused")
     public static class SimpleFileContentDescriptor extends FSTriggerContentFileTypeDescriptor<SimpleFileContent> {
@@ -92,6 +208,11 @@ public class SimpleFileContent extends FSTriggerContentFileType {
         public String getLabel() {
             return getDisplayName();
         }
+
+        @SuppressWarnings("unused")
+        public FSTriggerDigestAlgorithm[] getDigestAlgorithms() {
+            return FSTriggerDigestAlgorithm.values();
+        }
     }
     private static final long serialVersionUID = 1L;
 }
@@ -4,37 +4,89 @@ import hudson.Extension;
 import hudson.util.FormValidation;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentConsumer;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileTypeDescriptor;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerContentPipeline;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
+ * A large file is scanned in parallel chunks, with the number of threads given by {@link #PARALLEL_SCAN_THREADS_PROPERTY}.
+ *
  * @author Gregory Boissinot
  */
 public class TextFileContent extends FSTriggerContentFileType {
 
+    /**
+     * System property giving the number of threads scanning a large file on the node, 1 disables the parallel scan
+     */
+    public static final String PARALLEL_SCAN_THREADS_PROPERTY = TextFileContent.class.getName() + ".parallelScanThreads";
+
+    private static final int DEFAULT_MAX_PARALLEL_SCAN_THREADS = 4;
+
+    /**
+     * Minimum size of a file scanned in parallel chunks
+     */
+    private static final long PARALLEL_SCAN_MIN_SIZE = 64L << 20;
+
+    private static final long PARALLEL_SCAN_MIN_CHUNK_SIZE = 8L << 20;
+
     private List<TextFileContentEntry> regexElements;
 
+    /**
+     * GUI field
+     * True for only scanning the lines appended since the previous poll
+     */
+    private boolean tailMode;
+
+    /**
+     * Memory field for the tail mode
+     */
+    private transient TextFileContentPosition position;
+
     @DataBoundConstructor
     public TextFileContent(List<TextFileContentEntry> element) {
         this.regexElements = element;
     }
 
+    @SuppressWarnings("unused")
+    public boolean isTailMode() {
+        return tailMode;
+    }
+
+    @DataBoundSetter
+    public void setTailMode(boolean tailMode) {
+        this.tailMode = tailMode;
+    }
+
     @Override
     public Object getMemoryInfo() {
-        return regexElements;
+        return tailMode ? position : regexElements;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public void setMemoryInfo(Object memoryInfo) {
+        if (memoryInfo instanceof TextFileContentPosition || (tailMode && memoryInfo == null)) {
+            this.position = (TextFileContentPosition) memoryInfo;
+            return;
+        }
         if ((memoryInfo != null) && !(memoryInfo instanceof List)) {
             throw new IllegalArgumentException(String.format("The memory info %s object is not a List object.", memoryInfo));
         }
@@ -48,35 +100,392 @@ public class TextFileContent extends FSTriggerContentFileType {
 
     @Override
     protected void initForContent(File file) throws XTriggerException {
+        if (tailMode) {
+            position = getEndPosition(file);
+        }
+    }
+
+    /**
+     * A build is triggered as long as a line matches, even if the file is unchanged.
+     * In tail mode, an unchanged file has no new line.
+     */
+    @Override
+    protected boolean isFileStatGateSupported() {
+        return tailMode;
     }
 
     @Override
     protected boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException {
+        if (isParallelScan(file)) {
+            Boolean result = isTriggeringBuildForChunks(file, log,
+                    new TextFileContentChunkScanner(getParallelScanThreads(), PARALLEL_SCAN_MIN_CHUNK_SIZE));
+            if (result != null) {
+                return result;
+            }
+        }
+        LineMatchConsumer consumer = new LineMatchConsumer(log, tailMode ? getStartPosition(file, log) : null);
+        FSTriggerContentPipeline.feed(file, consumer);
+        return consumer.complete();
+    }
+
+    /**
+     * A large file is scanned in parallel by the type itself
+     */
+    @Override
+    protected FSTriggerContentConsumer newCheckConsumer(File file, XTriggerLog log) {
+        if (isParallelScan(file)) {
+            return null;
+        }
+        return new LineMatchConsumer(log, tailMode ? getStartPosition(file, log) : null);
+    }
+
+    private boolean isParallelScan(File file) {
+        return !tailMode && getParallelScanThreads() > 1 && file.length() >= PARALLEL_SCAN_MIN_SIZE;
+    }
+
+    /**
+     * Gets the number of threads scanning a large file on the current node
+     *
+     * @return the value of the {@link #PARALLEL_SCAN_THREADS_PROPERTY} system property,
+     * the number of processors up to {@value #DEFAULT_MAX_PARALLEL_SCAN_THREADS} if not set
+     */
+    static int getParallelScanThreads() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        Integer value = Integer.getInteger(PARALLEL_SCAN_THREADS_PROPERTY);
+        if (value == null) {
+            return Math.min(processors, DEFAULT_MAX_PARALLEL_SCAN_THREADS);
+        }
+        return Math.max(1, Math.min(value, processors * 4));
+    }
 
-        try (Reader fileReader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
-             BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-            String line;
-            //Check line by line if a pattern matches
-            while ((line = bufferedReader.readLine()) != null) {
-                for (TextFileContentEntry regexEntry : regexElements) {
-                    String regex = regexEntry.getRegex();
-                    if (regex == null) {
-                        log.info("You have to provide a pattern for each entry");
-                        return false;
+    /**
+     * Checks the chunks of the file in parallel. The chunks are completed in the file order,
+     * so the first line deciding the result in the file is the one logged, as with a sequential scan.
+     *
+     * @return the result, null if the file can't be scanned in chunks
+     */
+    Boolean isTriggeringBuildForChunks(File file, XTriggerLog log, TextFileContentChunkScanner scanner) throws XTriggerException {
+        List<LineMatchConsumer> consumers = scanner.scan(file, () -> new LineMatchConsumer(log, null));
+        if (consumers == null) {
+            return null;
+        }
+        log.info(String.format("Scanning the file '%s' in %d chunks.", file, consumers.size()));
+        for (LineMatchConsumer consumer : consumers) {
+            boolean decided = consumer.isDone();
+            if (consumer.complete()) {
+                return true;
+            }
+            if (decided) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the position following the last complete line of the file
+     */
+    private TextFileContentPosition getEndPosition(File file) throws XTriggerException {
+        FSTriggerFileStat stat = FSTriggerFileStat.of(file);
+        String fileKey = (stat == null) ? null : stat.getFileKey();
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end = channel.size();
+            while (end > 0) {
+                long start = Math.max(0L, end - buffer.capacity());
+                buffer.clear();
+                buffer.limit((int) (end - start));
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) != -1) {
+                    //Reads the whole block
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    byte b = buffer.get(i);
+                    if (b == '\n' || b == '\r') {
+                        return new TextFileContentPosition(start + i + 1, b == '\r', fileKey);
                     }
-                    Pattern pattern = Pattern.compile(regex);
-                    Matcher matcher = pattern.matcher(line);
-                    if (matcher.matches()) {
-                        log.info(String.format("The line '%s' matches the pattern '%s'", line, pattern));
-                        return true;
+                }
+                end = start;
+            }
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        }
+        return new TextFileContentPosition(0L, false, fileKey);
+    }
+
+    /**
+     * Gets the position to scan the file from in tail mode, the start of the file if it has been replaced or truncated
+     */
+    private TextFileContentPosition getStartPosition(File file, XTriggerLog log) {
+        FSTriggerFileStat stat = FSTriggerFileStat.of(file);
+        String fileKey = (stat == null) ? null : stat.getFileKey();
+        if (position == null) {
+            return new TextFileContentPosition(0L, false, fileKey);
+        }
+        if (position.getFileKey() != null && !position.getFileKey().equals(fileKey)) {
+            log.info(String.format("The file '%s' has been replaced since the previous poll. Scanning it from the start.", file));
+            return new TextFileContentPosition(0L, false, fileKey);
+        }
+        if (stat == null || stat.getSize() < position.getOffset()) {
+            log.info(String.format("The file '%s' has been truncated since the previous poll. Scanning it from the start.", file));
+            return new TextFileContentPosition(0L, false, fileKey);
+        }
+        log.info(String.format("Scanning the lines appended to the file '%s' from the position %d.", file, position.getOffset()));
+        return new TextFileContentPosition(position.getOffset(), position.isAfterCarriageReturn(), fileKey);
+    }
+
+    /**
+     * Decodes the content pushed by the caller in UTF-8, and checks line by line if a pattern matches.
+     * The lines are split as {@link java.io.BufferedReader#readLine()} does.
+     * The patterns are compiled once and evaluated together by a {@link TextFileContentMatcher}.
+     * When every pattern has a required literal, the literals are searched in the raw bytes
+     * and only the lines containing one of them are decoded.
+     * The line deciding the result is logged on completion.
+     * In tail mode, the scan starts at the position of the previous poll and a last line without line terminator
+     * is left for the next poll; the position following the last complete line is recorded.
+     */
+    private class LineMatchConsumer implements FSTriggerContentConsumer {
+
+        private final XTriggerLog log;
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+
+        /**
+         * The bytes of a character split between two chunks
+         */
+        private ByteBuffer pending;
+
+        private final StringBuilder line = new StringBuilder();
+
+        /**
+         * The scan of the current line, created with the first content
+         */
+        private TextFileContentMatcher matcher;
+
+        private TextFileContentMatcher.Session session;
+
+        /**
+         * True when the lines are scanned as bytes
+         */
+        private boolean byteScan;
+
+        /**
+         * The bytes of the current line read in the previous chunks, for the byte scan
+         */
+        private byte[] lineBytes = new byte[0];
+
+        private int lineLength;
+
+        private boolean afterCarriageReturn;
+
+        /**
+         * The result, null while no line has decided it
+         */
+        private Boolean result;
+
+        private String matchingLine;
+
+        private int matchingPattern = -1;
+
+        /**
+         * The position the scan starts from in tail mode, null for scanning the whole file
+         */
+        private final TextFileContentPosition start;
+
+        private long bytePosition;
+
+        private long lineEnd;
+
+        private boolean lineEndAfterCarriageReturn;
+
+        private LineMatchConsumer(XTriggerLog log, TextFileContentPosition start) {
+            this.log = log;
+            this.start = start;
+            if (start != null) {
+                bytePosition = start.getOffset();
+                lineEnd = start.getOffset();
+                lineEndAfterCarriageReturn = start.isAfterCarriageReturn();
+                afterCarriageReturn = start.isAfterCarriageReturn();
+            }
+        }
+
+        @Override
+        public long getStartPosition() {
+            return (start == null) ? 0L : start.getOffset();
+        }
+
+        @Override
+        public void update(ByteBuffer content) {
+            if (start != null) {
+                //The line terminators are single bytes in UTF-8
+                for (int i = content.limit() - 1; i >= content.position(); i--) {
+                    byte b = content.get(i);
+                    if (b == '\n' || b == '\r') {
+                        lineEnd = bytePosition + (i - content.position()) + 1;
+                        lineEndAfterCarriageReturn = (b == '\r');
+                        break;
                     }
                 }
+                bytePosition += content.remaining();
+            }
+
+            if (session == null && content.hasRemaining()) {
+                matcher = TextFileContentMatcher.get(regexElements);
+                session = matcher.newSession();
+                byteScan = matcher.isByteScanSupported();
+            }
+            if (byteScan) {
+                scanBytes(content);
+                return;
+            }
+
+            ByteBuffer input = content;
+            if (pending != null) {
+                input = ByteBuffer.allocate(pending.remaining() + content.remaining());
+                input.put(pending).put(content).flip();
+            }
+            decode(input, false);
+            if (input.hasRemaining()) {
+                pending = ByteBuffer.allocate(input.remaining());
+                pending.put(input).flip();
+            } else {
+                pending = null;
             }
-        } catch (IOException fne) {
-            throw new XTriggerException(fne);
         }
 
-        return false;
+        @Override
+        public boolean isDone() {
+            return result != null;
+        }
+
+        @Override
+        public boolean complete() {
+            if (result == null && byteScan) {
+                if (lineLength != 0 && start == null) {
+                    checkLine(ByteBuffer.wrap(lineBytes, 0, lineLength));
+                }
+            } else if (result == null) {
+                decode((pending == null) ? ByteBuffer.allocate(0) : pending, true);
+                decoder.flush(chars);
+                processChars();
+                if (result == null && line.length() != 0 && start == null) {
+                    checkLine();
+                }
+            }
+            if (start != null) {
+                position = new TextFileContentPosition(lineEnd, lineEndAfterCarriageReturn, start.getFileKey());
+            }
+            if (matchingPattern != -1) {
+                log.info(String.format("The line '%s' matches the pattern '%s'", matchingLine, matcher.getPattern(matchingPattern)));
+            } else if (result != null) {
+                log.info("You have to provide a pattern for each entry");
+            }
+            return result != null && result;
+        }
+
+        private void decode(ByteBuffer input, boolean endOfInput) {
+            CoderResult coderResult;
+            do {
+                coderResult = decoder.decode(input, chars, endOfInput);
+                processChars();
+            } while (coderResult.isOverflow() && result == null);
+        }
+
+        /**
+         * Splits the lines on the bytes of the line terminators, which are never part of a multi-byte character
+         */
+        private void scanBytes(ByteBuffer content) {
+            int lineStart = content.position();
+            int limit = content.limit();
+            for (int i = lineStart; i < limit && result == null; i++) {
+                byte b = content.get(i);
+                if (b == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                    lineStart = i + 1;
+                } else if (b == '\n' || b == '\r') {
+                    afterCarriageReturn = (b == '\r');
+                    ByteBuffer lineContent = content.duplicate();
+                    lineContent.limit(i).position(lineStart);
+                    if (lineLength != 0) {
+                        appendLineBytes(lineContent);
+                        lineContent = ByteBuffer.wrap(lineBytes, 0, lineLength);
+                    }
+                    checkLine(lineContent);
+                    lineLength = 0;
+                    lineStart = i + 1;
+                } else {
+                    afterCarriageReturn = false;
+                    session.next(b);
+                }
+            }
+            if (result == null && lineStart < limit) {
+                ByteBuffer rest = content.duplicate();
+                rest.position(lineStart);
+                appendLineBytes(rest);
+            }
+        }
+
+        private void appendLineBytes(ByteBuffer content) {
+            int length = content.remaining();
+            if (lineLength + length > lineBytes.length) {
+                lineBytes = Arrays.copyOf(lineBytes, Math.max(lineLength + length, lineBytes.length * 2));
+            }
+            content.get(lineBytes, lineLength, length);
+            lineLength += length;
+        }
+
+        /**
+         * Checks a line of the byte scan, only decoded when it contains a literal
+         */
+        private void checkLine(ByteBuffer lineContent) {
+            if (!session.hasCandidate()) {
+                session.reset();
+                if (matcher.isMissingPattern()) {
+                    result = false;
+                }
+                return;
+            }
+            String decodedLine = StandardCharsets.UTF_8.decode(lineContent).toString();
+            matchingPattern = session.matchLine(decodedLine);
+            if (matchingPattern != -1) {
+                matchingLine = decodedLine;
+                result = true;
+            } else if (matcher.isMissingPattern()) {
+                result = false;
+            }
+        }
+
+        private void processChars() {
+            chars.flip();
+            while (chars.hasRemaining() && result == null) {
+                char c = chars.get();
+                if (c == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                } else if (c == '\n' || c == '\r') {
+                    afterCarriageReturn = (c == '\r');
+                    checkLine();
+                    line.setLength(0);
+                } else {
+                    afterCarriageReturn = false;
+                    line.append(c);
+                    session.next(c);
+                }
+            }
+            chars.clear();
+        }
+
+        private void checkLine() {
+            matchingPattern = session.matchLine(line);
+            if (matchingPattern != -1) {
+                matchingLine = line.toString();
+                result = true;
+            } else if (matcher.isMissingPattern()) {
+                result = false;
+            }
+        }
     }
 
 
@@ -0,0 +1,194 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentConsumer;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Scans a large text file in parallel.
+ * <p>
+ * The file is split into chunks starting at a line start and ending after a line terminator.
+ * Each chunk is memory-mapped and pushed to its own consumer on a bounded fork-join pool.
+ * Once a consumer is done, the chunks following it in the file are not scanned further,
+ * so the caller can complete the consumers in the file order until the first done one,
+ * as if the file had been read by a single consumer.
+ */
+class TextFileContentChunkScanner {
+
+    /**
+     * Maximum size of a chunk, a mapping can't exceed 2 GB
+     */
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+    /**
+     * Size of the slices pushed to the consumers, between two checks of the cancellation
+     */
+    private static final int SLICE_SIZE = 1 << 20;
+
+    private final int parallelism;
+
+    private final long minChunkSize;
+
+    /**
+     * @param parallelism  the number of threads
+     * @param minChunkSize the minimum size of a chunk
+     */
+    TextFileContentChunkScanner(int parallelism, long minChunkSize) {
+        this.parallelism = parallelism;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Pushes the chunks of the file to their consumers
+     *
+     * @param file    the file
+     * @param factory the creation of the consumer of a chunk
+     * @return the consumers, in the order of the chunks in the file; the ones following a done consumer may be partially fed.
+     * Null when a line is too long to be mapped, the file has to be read sequentially.
+     * @throws XTriggerException if the file can't be read or a consumer fails
+     */
+    <T extends FSTriggerContentConsumer> List<T> scan(File file, Supplier<T> factory) throws XTriggerException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] boundaries = getBoundaries(channel, channel.size());
+            if (boundaries == null) {
+                return null;
+            }
+            List<T> consumers = new ArrayList<>();
+            for (int i = 1; i < boundaries.length; i++) {
+                consumers.add(factory.get());
+            }
+
+            AtomicInteger firstDone = new AtomicInteger(Integer.MAX_VALUE);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < consumers.size(); i++) {
+                final int index = i;
+                tasks.add(() -> {
+                    scanChunk(channel, boundaries[index], boundaries[index + 1], consumers.get(index), index, firstDone);
+                    return null;
+                });
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+            try {
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    future.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            return consumers;
+
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new XTriggerException(ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof XTriggerException) {
+                throw (XTriggerException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new XTriggerException(cause);
+        }
+    }
+
+    private static void scanChunk(FileChannel channel, long start, long end, FSTriggerContentConsumer consumer,
+                                  int index, AtomicInteger firstDone) throws IOException, XTriggerException {
+        MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int position = 0;
+        try {
+            while (position < mapping.limit() && firstDone.get() > index) {
+                ByteBuffer slice = mapping.duplicate();
+                slice.limit(Math.min(mapping.limit(), position + SLICE_SIZE)).position(position);
+                position = slice.limit();
+                consumer.update(slice);
+                if (consumer.isDone()) {
+                    firstDone.accumulateAndGet(index, Math::min);
+                    return;
+                }
+            }
+        } catch (InternalError e) {
+            //The file has been truncated while being read
+            throw new IOException("The file has changed while being scanned.", e);
+        }
+    }
+
+    /**
+     * Splits the file on line boundaries
+     *
+     * @return the start of each chunk followed by the end of the last one, null if a chunk can't be mapped
+     */
+    private long[] getBoundaries(FileChannel channel, long size) throws IOException {
+        int chunkCount = (int) Math.max(Math.min(parallelism * 4L, size / Math.max(1L, minChunkSize)),
+                (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long previous = 0L;
+        for (int i = 1; i < chunkCount; i++) {
+            long boundary = getNextLineStart(channel, Math.max(previous, size / chunkCount * i), size, buffer);
+            if (boundary >= size) {
+                break;
+            }
+            if (boundary > previous) {
+                boundaries.add(boundary);
+                previous = boundary;
+            }
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        for (int i = 1; i < result.length; i++) {
+            if (result[i] - result[i - 1] > MAX_CHUNK_SIZE) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the position following the first line terminator from the given position, a CR LF pair being one terminator
+     */
+    private static long getNextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        boolean afterCarriageReturn = false;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (afterCarriageReturn) {
+                    return (b == '\n') ? position + i + 1 : position + i;
+                }
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                afterCarriageReturn = (b == '\r');
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,538 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The patterns of a {@link TextFileContent}, compiled once and evaluated together on each line.
+ * <p>
+ * A literal that any line matching a pattern must contain is extracted from each pattern when possible.
+ * All these literals are searched in a single pass over the line with an Aho-Corasick automaton,
+ * and a pattern is only run on the lines containing its literal.
+ * When every pattern has a literal, the literals can also be searched in the UTF-8 bytes of the lines,
+ * so only the lines containing a literal have to be decoded.
+ * The matchers are shared by the polls through a small cache keyed by the patterns, they are immutable.
+ */
+class TextFileContentMatcher {
+
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<List<String>, TextFileContentMatcher> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<List<String>, TextFileContentMatcher>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, TextFileContentMatcher> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    /**
+     * The compiled patterns, up to the first entry without pattern
+     */
+    private final Pattern[] patterns;
+
+    /**
+     * True when an entry has no pattern
+     */
+    private final boolean missingPattern;
+
+    /**
+     * The required literal of each pattern, null when the pattern has none
+     */
+    private final String[] literals;
+
+    /**
+     * The automaton searching the literals, null when no pattern has a literal
+     */
+    private final LiteralAutomaton automaton;
+
+    /**
+     * The automaton searching the UTF-8 bytes of the literals, null when a pattern has no literal
+     */
+    private final LiteralAutomaton byteAutomaton;
+
+    private TextFileContentMatcher(List<String> regexes) {
+        List<Pattern> compiledPatterns = new ArrayList<>();
+        boolean missing = false;
+        for (String regex : regexes) {
+            if (regex == null) {
+                missing = true;
+                break;
+            }
+            compiledPatterns.add(Pattern.compile(regex));
+        }
+        this.patterns = compiledPatterns.toArray(new Pattern[0]);
+        this.missingPattern = missing;
+        this.literals = new String[patterns.length];
+        boolean hasLiteral = false;
+        boolean byteLiterals = patterns.length != 0;
+        for (int i = 0; i < patterns.length; i++) {
+            literals[i] = getRequiredLiteral(patterns[i].pattern());
+            hasLiteral |= literals[i] != null;
+            byteLiterals &= literals[i] != null && isByteSearchable(literals[i]);
+        }
+        this.automaton = hasLiteral ? new LiteralAutomaton(toSymbols(literals, false)) : null;
+        this.byteAutomaton = byteLiterals ? new LiteralAutomaton(toSymbols(literals, true)) : null;
+    }
+
+    /**
+     * A literal is found in the bytes of a line as in its decoded characters, unless it contains
+     * the replacement character of the malformed bytes or a surrogate that can't be encoded alone
+     */
+    private static boolean isByteSearchable(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '\uFFFD' || Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the characters of the literals, or their unsigned UTF-8 bytes
+     */
+    private static int[][] toSymbols(String[] literals, boolean bytes) {
+        int[][] symbols = new int[literals.length][];
+        for (int i = 0; i < literals.length; i++) {
+            if (literals[i] == null) {
+                continue;
+            }
+            if (bytes) {
+                byte[] encoded = literals[i].getBytes(StandardCharsets.UTF_8);
+                symbols[i] = new int[encoded.length];
+                for (int j = 0; j < encoded.length; j++) {
+                    symbols[i][j] = encoded[j] & 0xFF;
+                }
+            } else {
+                symbols[i] = literals[i].chars().toArray();
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Gets the matcher of the entries, compiled once for the same patterns
+     *
+     * @param entries the entries of the content type
+     * @return the matcher
+     * @throws java.util.regex.PatternSyntaxException if a pattern is invalid
+     */
+    static TextFileContentMatcher get(List<TextFileContentEntry> entries) {
+        List<String> regexes = new ArrayList<>();
+        if (entries != null) {
+            for (TextFileContentEntry entry : entries) {
+                regexes.add(entry.getRegex());
+            }
+        }
+        TextFileContentMatcher matcher = CACHE.get(regexes);
+        if (matcher == null) {
+            matcher = new TextFileContentMatcher(regexes);
+            CACHE.put(regexes, matcher);
+        }
+        return matcher;
+    }
+
+    /**
+     * @return true when an entry has no pattern, the lines can't be checked
+     */
+    boolean isMissingPattern() {
+        return missingPattern;
+    }
+
+    Pattern getPattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * @return true when the lines can be scanned as UTF-8 bytes with {@link Session#next(byte)}
+     */
+    boolean isByteScanSupported() {
+        return byteAutomaton != null;
+    }
+
+    /**
+     * @return a new state for scanning lines, it must be used by a single thread
+     */
+    Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * The state of the scan of a line. The characters, or the bytes, of the line are pushed as they are read,
+     * then the line is matched against the patterns. A session scans either characters or bytes.
+     */
+    class Session {
+
+        private final Matcher[] matchers = new Matcher[patterns.length];
+
+        private final boolean[] candidates = new boolean[patterns.length];
+
+        private final int[] foundCandidates = new int[patterns.length];
+
+        private int foundCount;
+
+        private int state;
+
+        /**
+         * Pushes the next character of the line
+         */
+        void next(char c) {
+            if (automaton == null) {
+                return;
+            }
+            state = automaton.next(state, c);
+            addCandidates(automaton.getOutputs(state));
+        }
+
+        /**
+         * Pushes the next byte of the UTF-8 line, when {@link #isByteScanSupported()}
+         */
+        void next(byte b) {
+            state = byteAutomaton.next(state, b & 0xFF);
+            addCandidates(byteAutomaton.getOutputs(state));
+        }
+
+        private void addCandidates(int[] outputs) {
+            for (int pattern : outputs) {
+                if (!candidates[pattern]) {
+                    candidates[pattern] = true;
+                    foundCandidates[foundCount++] = pattern;
+                }
+            }
+        }
+
+        /**
+         * @return true when the line pushed so far contains a literal, it may match a pattern having a literal
+         */
+        boolean hasCandidate() {
+            return foundCount != 0;
+        }
+
+        /**
+         * Resets the state for the next line, without matching the current one
+         */
+        void reset() {
+            for (int i = 0; i < foundCount; i++) {
+                candidates[foundCandidates[i]] = false;
+            }
+            foundCount = 0;
+            state = 0;
+        }
+
+        /**
+         * Matches the line, and resets the state for the next line
+         *
+         * @param line the whole line
+         * @return the index of the first pattern matching the whole line, -1 if none
+         */
+        int matchLine(CharSequence line) {
+            try {
+                for (int i = 0; i < patterns.length; i++) {
+                    if (literals[i] != null && !candidates[i]) {
+                        continue;
+                    }
+                    if (matchers[i] == null) {
+                        matchers[i] = patterns[i].matcher(line);
+                    } else {
+                        matchers[i].reset(line);
+                    }
+                    if (matchers[i].matches()) {
+                        return i;
+                    }
+                }
+                return -1;
+            } finally {
+                reset();
+            }
+        }
+    }
+
+    /**
+     * Extracts a literal that any string matching the whole pattern contains.
+     * The extraction is conservative: the constructs it doesn't know stop it.
+     *
+     * @param regex the pattern
+     * @return the longest literal found, null if none
+     */
+    static String getRequiredLiteral(String regex) {
+        //Alternations, flags and special groups are not analyzed
+        if (regex.contains("(?") || hasTopLevelAlternation(regex)) {
+            return null;
+        }
+
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    break;
+                }
+                char escaped = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped)) {
+                    if ("dDwWsStnrfaebBAzZGRXhHvV".indexOf(escaped) == -1) {
+                        //Escape sequences with arguments, back references and quotations are not analyzed
+                        break;
+                    }
+                    best = longest(best, run);
+                    run.setLength(0);
+                } else {
+                    run.append(escaped);
+                }
+                i += 2;
+            } else if (c == '[') {
+                best = longest(best, run);
+                run.setLength(0);
+                i = skipClass(regex, i);
+            } else if (c == '(') {
+                best = longest(best, run);
+                run.setLength(0);
+                i = skipGroup(regex, i);
+            } else if (c == '*' || c == '?' || c == '+' || c == '{') {
+                //The quantifier applies to the last character of the run
+                if (c != '+' && run.length() > 0) {
+                    run.setLength(run.length() - 1);
+                }
+                best = longest(best, run);
+                run.setLength(0);
+                i = skipQuantifier(regex, i);
+            } else if (c == '.' || c == '^' || c == '$' || c == ')' || c == '|') {
+                best = longest(best, run);
+                run.setLength(0);
+                i++;
+            } else {
+                run.append(c);
+                i++;
+            }
+        }
+        best = longest(best, run);
+        return best.isEmpty() ? null : best;
+    }
+
+    private static String longest(String best, StringBuilder run) {
+        return (run.length() > best.length()) ? run.toString() : best;
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipClass(regex, i) - 1;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the index following the character class starting at the given index
+     */
+    private static int skipClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                //A closing bracket at the start of a class is a literal
+                int next = i + 1;
+                if (next < regex.length() && regex.charAt(next) == '^') {
+                    next++;
+                }
+                if (next < regex.length() && regex.charAt(next) == ']') {
+                    i = next;
+                }
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the index following the group starting at the given index
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the index following the quantifier starting at the given index, with its lazy or possessive suffix
+     */
+    private static int skipQuantifier(String regex, int start) {
+        int i = start;
+        if (regex.charAt(i) == '{') {
+            int end = regex.indexOf('}', i);
+            i = (end == -1) ? regex.length() : end + 1;
+        } else {
+            i++;
+        }
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * An Aho-Corasick automaton, compiled into a complete transition table over the symbols (characters or bytes) of the literals
+     */
+    private static class LiteralAutomaton {
+
+        private static final int[] NO_OUTPUT = new int[0];
+
+        /**
+         * The sorted distinct symbols of the literals
+         */
+        private final int[] alphabet;
+
+        /**
+         * The index in the alphabet + 1 of the symbols below 256, 0 for the symbols outside of the alphabet
+         */
+        private final int[] smallIndexes = new int[256];
+
+        /**
+         * The next state for each state and each alphabet index + 1
+         */
+        private final int[][] transitions;
+
+        /**
+         * The patterns whose literal ends at each state
+         */
+        private final int[][] outputs;
+
+        /**
+         * @param literals the symbols of each literal, null for the patterns without literal
+         */
+        LiteralAutomaton(int[][] literals) {
+            this.alphabet = Arrays.stream(literals)
+                    .filter(literal -> literal != null)
+                    .flatMapToInt(Arrays::stream)
+                    .sorted()
+                    .distinct()
+                    .toArray();
+            for (int i = 0; i < alphabet.length; i++) {
+                if (alphabet[i] < smallIndexes.length) {
+                    smallIndexes[alphabet[i]] = i + 1;
+                }
+            }
+
+            //The trie of the literals
+            int width = alphabet.length + 1;
+            List<int[]> trie = new ArrayList<>();
+            List<List<Integer>> trieOutputs = new ArrayList<>();
+            trie.add(new int[width]);
+            trieOutputs.add(new ArrayList<>());
+            for (int pattern = 0; pattern < literals.length; pattern++) {
+                if (literals[pattern] == null) {
+                    continue;
+                }
+                int state = 0;
+                for (int i = 0; i < literals[pattern].length; i++) {
+                    int symbol = getSymbol(literals[pattern][i]);
+                    if (trie.get(state)[symbol] == 0) {
+                        trie.get(state)[symbol] = trie.size();
+                        trie.add(new int[width]);
+                        trieOutputs.add(new ArrayList<>());
+                    }
+                    state = trie.get(state)[symbol];
+                }
+                trieOutputs.get(state).add(pattern);
+            }
+
+            //The failure links, followed in breadth-first order to complete the transitions
+            int stateCount = trie.size();
+            this.transitions = trie.toArray(new int[0][]);
+            int[] failures = new int[stateCount];
+            int[] queue = new int[stateCount];
+            int head = 0;
+            int tail = 0;
+            for (int symbol = 1; symbol < width; symbol++) {
+                if (transitions[0][symbol] != 0) {
+                    queue[tail++] = transitions[0][symbol];
+                }
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                trieOutputs.get(state).addAll(trieOutputs.get(failures[state]));
+                for (int symbol = 1; symbol < width; symbol++) {
+                    int child = transitions[state][symbol];
+                    if (child != 0) {
+                        failures[child] = transitions[failures[state]][symbol];
+                        queue[tail++] = child;
+                    } else {
+                        transitions[state][symbol] = transitions[failures[state]][symbol];
+                    }
+                }
+            }
+
+            this.outputs = new int[stateCount][];
+            for (int state = 0; state < stateCount; state++) {
+                List<Integer> stateOutputs = trieOutputs.get(state);
+                outputs[state] = stateOutputs.isEmpty() ? NO_OUTPUT : stateOutputs.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        private int getSymbol(int c) {
+            if (c < smallIndexes.length) {
+                return smallIndexes[c];
+            }
+            int index = Arrays.binarySearch(alphabet, c);
+            return (index < 0) ? 0 : index + 1;
+        }
+
+        int next(int state, int c) {
+            return transitions[state][getSymbol(c)];
+        }
+
+        int[] getOutputs(int state) {
+            return outputs[state];
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import java.io.Serializable;
+
+/**
+ * The position reached in a text file by the previous poll, for the tail mode of {@link TextFileContent}
+ */
+class TextFileContentPosition implements Serializable {
+
+    /**
+     * The position following the last complete line
+     */
+    private final long offset;
+
+    /**
+     * True when the last complete line ends with a carriage return, a line feed at the offset belongs to it
+     */
+    private final boolean afterCarriageReturn;
+
+    /**
+     * The identity of the file, null when the file system doesn't provide one
+     */
+    private final String fileKey;
+
+    TextFileContentPosition(long offset, boolean afterCarriageReturn, String fileKey) {
+        this.offset = offset;
+        this.afterCarriageReturn = afterCarriageReturn;
+        this.fileKey = fileKey;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    boolean isAfterCarriageReturn() {
+        return afterCarriageReturn;
+    }
+
+    String getFileKey() {
+        return fileKey;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
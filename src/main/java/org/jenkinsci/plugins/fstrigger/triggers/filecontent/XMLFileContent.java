@@ -11,12 +11,10 @@ import org.kohsuke.stapler.QueryParameter;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -31,8 +29,6 @@ public class XMLFileContent extends FSTriggerContentFileType {
 
     private transient Map<String, Object> results;
 
-    private transient Document xmlDocument;
-
     private List<XMLFileContentEntry> expressions = new ArrayList<XMLFileContentEntry>();
 
     @DataBoundConstructor
@@ -63,16 +59,35 @@ public class XMLFileContent extends FSTriggerContentFileType {
 
     @Override
     protected void initForContent(File file) throws XTriggerException {
-        xmlDocument = initXMLFile(file);
-        results = readXMLPath(xmlDocument);
+        results = readResults(file);
+    }
+
+    /**
+     * Evaluates the expressions supported by the {@link XMLFileContentStreamEvaluator} on a forward pass over the file,
+     * the DOM document is only built for the other ones
+     */
+    private Map<String, Object> readResults(File file) throws XTriggerException {
+        List<String> expressionValues = new ArrayList<String>(expressions.size());
+        for (XMLFileContentEntry expressionEntry : expressions) {
+            expressionValues.add(expressionEntry.getExpression());
+        }
+        XMLFileContentStreamEvaluator evaluator = new XMLFileContentStreamEvaluator(expressionValues);
+        Map<String, Object> results = evaluator.evaluate(file);
+        if (!evaluator.getUnsupportedExpressions().isEmpty()) {
+            results.putAll(readXMLPath(initXMLFile(file), evaluator.getUnsupportedExpressions()));
+        }
+        return results;
     }
 
     private Document initXMLFile(File file) throws XTriggerException {
         Document xmlDocument;
         try {
-            DocumentBuilderFactory xmlDocFactory = DocumentBuilderFactory.newInstance() ;
-            xmlDocFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true) ;
-            xmlDocument = xmlDocFactory.newDocumentBuilder().parse(file);
+            DocumentBuilder documentBuilder = XMLFileContentParsers.acquireDocumentBuilder();
+            try {
+                xmlDocument = documentBuilder.parse(file);
+            } finally {
+                XMLFileContentParsers.releaseDocumentBuilder(documentBuilder);
+            }
         } catch (SAXException e) {
             throw new XTriggerException(e);
         } catch (IOException e) {
@@ -83,15 +98,13 @@ public class XMLFileContent extends FSTriggerContentFileType {
         return xmlDocument;
     }
 
-    private Map<String, Object> readXMLPath(Document document) throws XTriggerException {
+    private Map<String, Object> readXMLPath(Document document, List<String> expressions) throws XTriggerException {
         Map<String, Object> results = new HashMap<String, Object>(expressions.size());
-        XPathFactory xPathFactory = XPathFactory.newInstance();
-        XPath xPath = xPathFactory.newXPath();
         try {
-            for (XMLFileContentEntry expressionEntry : expressions) {
-                String expression = expressionEntry.getExpression();
-                XPathExpression xPathExpression = xPath.compile(expression);
+            for (String expression : expressions) {
+                XPathExpression xPathExpression = XMLFileContentParsers.acquireExpression(expression);
                 Object result = xPathExpression.evaluate(document);
+                XMLFileContentParsers.releaseExpression(expression, xPathExpression);
                 results.put(expression, result);
             }
         } catch (XPathExpressionException xpe) {
@@ -103,8 +116,7 @@ public class XMLFileContent extends FSTriggerContentFileType {
     @Override
     protected boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException {
 
-        Document newDocument = initXMLFile(file);
-        Map<String, Object> newResults = readXMLPath(newDocument);
+        Map<String, Object> newResults = readResults(file);
 
         if (results == null) {
             throw new NullPointerException("Initial result object must not be a null reference.");
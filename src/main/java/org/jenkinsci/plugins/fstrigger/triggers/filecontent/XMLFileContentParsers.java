@@ -0,0 +1,118 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The XML factories, parsers and compiled XPath expressions of the {@link XMLFileContent} polls, shared in the current JVM.
+ * <p>
+ * The factories are looked up and configured once. The parsers and the expressions are not thread-safe:
+ * they are borrowed by a single poll and given back afterwards.
+ * The idle document builders are kept up to {@link #MAX_POOLED_BUILDERS}, reset when given back.
+ * The expressions are kept for the {@link #MAX_CACHED_EXPRESSIONS} last used expression strings,
+ * up to {@link #MAX_POOLED_EXPRESSIONS} instances each; as a compiled expression only depends on its string,
+ * it never has to be invalidated.
+ */
+class XMLFileContentParsers {
+
+    private static final int MAX_POOLED_BUILDERS = 8;
+
+    private static final int MAX_CACHED_EXPRESSIONS = 256;
+
+    private static final int MAX_POOLED_EXPRESSIONS = 8;
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = newDocumentBuilderFactory();
+
+    private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+    private static final ConcurrentLinkedDeque<DocumentBuilder> BUILDER_POOL = new ConcurrentLinkedDeque<>();
+
+    private static final AtomicInteger POOLED_BUILDERS = new AtomicInteger();
+
+    private static final Map<String, ConcurrentLinkedDeque<XPathExpression>> EXPRESSIONS = Collections.synchronizedMap(
+            new LinkedHashMap<String, ConcurrentLinkedDeque<XPathExpression>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ConcurrentLinkedDeque<XPathExpression>> eldest) {
+                    return size() > MAX_CACHED_EXPRESSIONS;
+                }
+            });
+
+    private XMLFileContentParsers() {
+    }
+
+    private static DocumentBuilderFactory newDocumentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        try {
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        } catch (ParserConfigurationException pce) {
+            throw new IllegalStateException(pce);
+        }
+        return factory;
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * @return the StAX factory, it is thread-safe once configured
+     */
+    static XMLInputFactory getInputFactory() {
+        return INPUT_FACTORY;
+    }
+
+    static DocumentBuilder acquireDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = BUILDER_POOL.pollFirst();
+        if (builder == null) {
+            synchronized (DOCUMENT_BUILDER_FACTORY) {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+        }
+        POOLED_BUILDERS.decrementAndGet();
+        return builder;
+    }
+
+    static void releaseDocumentBuilder(DocumentBuilder builder) {
+        builder.reset();
+        if (POOLED_BUILDERS.incrementAndGet() <= MAX_POOLED_BUILDERS) {
+            BUILDER_POOL.offerFirst(builder);
+        } else {
+            POOLED_BUILDERS.decrementAndGet();
+        }
+    }
+
+    static XPathExpression acquireExpression(String expression) throws XPathExpressionException {
+        ConcurrentLinkedDeque<XPathExpression> pool = EXPRESSIONS.get(expression);
+        XPathExpression compiled = (pool == null) ? null : pool.pollFirst();
+        if (compiled != null) {
+            return compiled;
+        }
+        synchronized (XPATH_FACTORY) {
+            return XPATH_FACTORY.newXPath().compile(expression);
+        }
+    }
+
+    static void releaseExpression(String expression, XPathExpression compiled) {
+        ConcurrentLinkedDeque<XPathExpression> pool = EXPRESSIONS.computeIfAbsent(expression, key -> new ConcurrentLinkedDeque<>());
+        //The bound is approximate under contention
+        if (pool.size() < MAX_POOLED_EXPRESSIONS) {
+            pool.offerFirst(compiled);
+        }
+    }
+}
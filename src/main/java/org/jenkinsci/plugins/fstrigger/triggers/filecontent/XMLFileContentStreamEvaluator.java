@@ -0,0 +1,372 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a subset of XPath on a single forward pass over an XML file, without building a DOM.
+ * <p>
+ * The supported expressions are absolute paths of element names, each step having optional predicates
+ * among a position ({@code [2]}), an attribute presence ({@code [@id]}) or an attribute value ({@code [@id='1']}),
+ * and ending with an element, an attribute ({@code /@id}) or the text nodes ({@code /text()}) of the elements.
+ * A path can be counted with {@code count(path)}.
+ * The results are the string values returned by the XPath evaluation of the same expressions on the DOM document.
+ */
+class XMLFileContentStreamEvaluator {
+
+    private static final String NAME = "[A-Za-z_][A-Za-z0-9_.\\-]*";
+
+    private static final Pattern STEP = Pattern.compile("(" + NAME + ")((?:\\[[^\\]]*\\])*)");
+
+    private static final Pattern PREDICATE = Pattern.compile(
+            "\\[(?:([1-9][0-9]{0,8})|@(" + NAME + ")(?:=(?:'([^']*)'|\"([^\"]*)\"))?)\\]");
+
+    private final List<StreamPath> paths = new ArrayList<>();
+
+    private final List<String> unsupportedExpressions = new ArrayList<>();
+
+    /**
+     * @param expressions the expressions to evaluate, the unsupported ones are left for the XPath evaluation
+     */
+    XMLFileContentStreamEvaluator(List<String> expressions) {
+        for (String expression : expressions) {
+            StreamPath path = (expression == null) ? null : StreamPath.parse(expression);
+            if (path == null) {
+                unsupportedExpressions.add(expression);
+            } else {
+                paths.add(path);
+            }
+        }
+    }
+
+    /**
+     * @return the expressions that can't be evaluated on the stream
+     */
+    List<String> getUnsupportedExpressions() {
+        return unsupportedExpressions;
+    }
+
+    /**
+     * Evaluates the supported expressions
+     *
+     * @param file the XML file
+     * @return the result of each supported expression
+     * @throws XTriggerException if the file can't be parsed or contains a DOCTYPE declaration
+     */
+    Map<String, Object> evaluate(File file) throws XTriggerException {
+        Map<String, Object> results = new HashMap<>(paths.size());
+        if (paths.isEmpty()) {
+            return results;
+        }
+        for (StreamPath path : paths) {
+            path.reset();
+        }
+
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            XMLStreamReader reader = XMLFileContentParsers.getInputFactory().createXMLStreamReader(file.toURI().toString(), input);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    switch (event) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            depth++;
+                            for (StreamPath path : paths) {
+                                path.startElement(reader, depth);
+                            }
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            for (StreamPath path : paths) {
+                                path.endElement(depth);
+                            }
+                            depth--;
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                        case XMLStreamConstants.SPACE:
+                            for (StreamPath path : paths) {
+                                path.text(reader, depth);
+                            }
+                            break;
+                        case XMLStreamConstants.DTD:
+                            //As the disallow-doctype-decl feature of the DOM parsing
+                            throw new XTriggerException(String.format("The file '%s' has a DOCTYPE declaration, it is not allowed.", file));
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | IOException e) {
+            throw new XTriggerException(e);
+        }
+
+        for (StreamPath path : paths) {
+            results.put(path.expression, path.getResult());
+        }
+        return results;
+    }
+
+    private enum Target {
+        ELEMENT, ATTRIBUTE, TEXT
+    }
+
+    /**
+     * A supported expression, with the state of its evaluation
+     */
+    private static class StreamPath {
+
+        private final String expression;
+
+        private final String[] names;
+
+        /**
+         * The predicates of each step
+         */
+        private final Predicate[][] predicates;
+
+        private final Target target;
+
+        private final String attributeName;
+
+        private final boolean count;
+
+        /**
+         * The number of elements passing the previous predicates, for each step and positional predicate
+         */
+        private final int[][] positions;
+
+        /**
+         * The number of leading steps matched by the current open elements
+         */
+        private int matchedDepth;
+
+        private long matchCount;
+
+        private String value;
+
+        /**
+         * The depth of the element whose string value is captured, 0 when none
+         */
+        private int captureDepth;
+
+        private StringBuilder captured;
+
+        private StreamPath(String expression, List<String> names, List<Predicate[]> predicates, Target target, String attributeName, boolean count) {
+            this.expression = expression;
+            this.names = names.toArray(new String[0]);
+            this.predicates = predicates.toArray(new Predicate[0][]);
+            this.target = target;
+            this.attributeName = attributeName;
+            this.count = count;
+            this.positions = new int[this.names.length][];
+            for (int i = 0; i < this.names.length; i++) {
+                positions[i] = new int[this.predicates[i].length];
+            }
+        }
+
+        /**
+         * @return the path, null if the expression is not supported
+         */
+        static StreamPath parse(String expression) {
+            String path = expression.trim();
+            boolean count = false;
+            if (path.startsWith("count(") && path.endsWith(")")) {
+                count = true;
+                path = path.substring("count(".length(), path.length() - 1).trim();
+            }
+            if (!path.startsWith("/") || path.startsWith("//")) {
+                return null;
+            }
+
+            String[] steps = path.substring(1).split("/", -1);
+            Target target = Target.ELEMENT;
+            String attributeName = null;
+            int stepCount = steps.length;
+            String last = steps[steps.length - 1];
+            if (last.equals("text()")) {
+                //Adjacent text nodes are reported together by the stream, they can't be counted
+                if (count) {
+                    return null;
+                }
+                target = Target.TEXT;
+                stepCount--;
+            } else if (last.startsWith("@")) {
+                attributeName = last.substring(1);
+                if (!attributeName.matches(NAME) || attributeName.startsWith("xmlns")) {
+                    return null;
+                }
+                target = Target.ATTRIBUTE;
+                stepCount--;
+            }
+            if (stepCount == 0) {
+                return null;
+            }
+
+            List<String> names = new ArrayList<>();
+            List<Predicate[]> predicates = new ArrayList<>();
+            for (int i = 0; i < stepCount; i++) {
+                Matcher stepMatcher = STEP.matcher(steps[i]);
+                if (!stepMatcher.matches()) {
+                    return null;
+                }
+                names.add(stepMatcher.group(1));
+                List<Predicate> stepPredicates = new ArrayList<>();
+                Matcher predicateMatcher = PREDICATE.matcher(stepMatcher.group(2));
+                int end = 0;
+                while (predicateMatcher.find() && predicateMatcher.start() == end) {
+                    end = predicateMatcher.end();
+                    if (predicateMatcher.group(1) != null) {
+                        stepPredicates.add(new Predicate(Integer.parseInt(predicateMatcher.group(1)), null, null));
+                    } else {
+                        String attributeValue = (predicateMatcher.group(3) != null) ? predicateMatcher.group(3) : predicateMatcher.group(4);
+                        if (predicateMatcher.group(2).startsWith("xmlns")) {
+                            return null;
+                        }
+                        stepPredicates.add(new Predicate(0, predicateMatcher.group(2), attributeValue));
+                    }
+                }
+                if (end != stepMatcher.group(2).length()) {
+                    return null;
+                }
+                predicates.add(stepPredicates.toArray(new Predicate[0]));
+            }
+            return new StreamPath(expression, names, predicates, target, attributeName, count);
+        }
+
+        void reset() {
+            matchedDepth = 0;
+            matchCount = 0;
+            value = null;
+            captureDepth = 0;
+            captured = null;
+            for (int[] stepPositions : positions) {
+                Arrays.fill(stepPositions, 0);
+            }
+        }
+
+        private boolean isDecided() {
+            return !count && value != null;
+        }
+
+        void startElement(XMLStreamReader reader, int depth) {
+            if (matchedDepth != depth - 1 || depth > names.length || isDecided()) {
+                return;
+            }
+            int step = depth - 1;
+            if (!names[step].equals(reader.getLocalName()) || !matchesPredicates(reader, step)) {
+                return;
+            }
+            matchedDepth = depth;
+            if (depth < names.length) {
+                //The positions of the next step are relative to this element
+                Arrays.fill(positions[depth], 0);
+                return;
+            }
+
+            String attributeValue = (target == Target.ATTRIBUTE) ? getAttribute(reader, attributeName) : null;
+            if (count) {
+                if (target != Target.ATTRIBUTE || attributeValue != null) {
+                    matchCount++;
+                }
+            } else if (target == Target.ATTRIBUTE) {
+                value = attributeValue;
+            } else if (target == Target.ELEMENT) {
+                captureDepth = depth;
+                captured = new StringBuilder();
+            }
+        }
+
+        void endElement(int depth) {
+            if (captureDepth == depth) {
+                value = captured.toString();
+                captureDepth = 0;
+                captured = null;
+            }
+            if (matchedDepth == depth) {
+                matchedDepth = depth - 1;
+            }
+        }
+
+        void text(XMLStreamReader reader, int depth) {
+            if (captured != null) {
+                captured.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else if (target == Target.TEXT && !isDecided() && matchedDepth == names.length && depth == names.length) {
+                value = reader.getText();
+            }
+        }
+
+        private boolean matchesPredicates(XMLStreamReader reader, int step) {
+            for (int i = 0; i < predicates[step].length; i++) {
+                Predicate predicate = predicates[step][i];
+                if (predicate.position != 0) {
+                    if (++positions[step][i] != predicate.position) {
+                        return false;
+                    }
+                } else {
+                    String attributeValue = getAttribute(reader, predicate.attributeName);
+                    if (attributeValue == null || (predicate.attributeValue != null && !predicate.attributeValue.equals(attributeValue))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The names are compared without namespace, as in the DOM document built without namespace awareness
+         */
+        private static String getAttribute(XMLStreamReader reader, String name) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (name.equals(reader.getAttributeLocalName(i))) {
+                    return reader.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        Object getResult() {
+            if (count) {
+                return String.valueOf(matchCount);
+            }
+            return (value == null) ? "" : value;
+        }
+    }
+
+    private static class Predicate {
+
+        /**
+         * The position, 0 for an attribute predicate
+         */
+        private final int position;
+
+        private final String attributeName;
+
+        /**
+         * The expected value, null for a presence check
+         */
+        private final String attributeValue;
+
+        Predicate(int position, String attributeName, String attributeValue) {
+            this.position = position;
+            this.attributeName = attributeName;
+            this.attributeValue = attributeValue;
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileTypeDescriptor;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerDigestAlgorithm;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerZipCentralDirectory;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.File;
@@ -16,6 +18,9 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 /**
+ * The digest of the central directory of the archive is compared first,
+ * the entries are only compared one by one when it has changed.
+ *
  * @author Gregory Boissinot
  */
 public class ZIPFileContent extends FSTriggerContentFileType {
@@ -24,6 +29,8 @@ public class ZIPFileContent extends FSTriggerContentFileType {
 
     private transient StringBuilder zipContent;
 
+    private transient String centralDirectoryDigest;
+
     @DataBoundConstructor
     @SuppressWarnings("unused")
     public ZIPFileContent() {
@@ -31,16 +38,22 @@ public class ZIPFileContent extends FSTriggerContentFileType {
 
     @Override
     public Object getMemoryInfo() {
-        return zipEntries;
+        return new ZIPFileContentMemory(centralDirectoryDigest, zipEntries);
     }
 
     @Override
     public void setMemoryInfo(Object memoryInfo) {
+        if (memoryInfo instanceof ZIPFileContentMemory) {
+            this.centralDirectoryDigest = ((ZIPFileContentMemory) memoryInfo).getCentralDirectoryDigest();
+            this.zipEntries = ((ZIPFileContentMemory) memoryInfo).getEntries();
+            return;
+        }
         if ((memoryInfo != null) && !(memoryInfo instanceof List)) {
             throw new IllegalArgumentException(String.format("The memory info %s object is not a List object.", memoryInfo));
         }
         if (memoryInfo != null) {
             this.zipEntries = (List) memoryInfo;
+            this.centralDirectoryDigest = null;
         }
     }
 
@@ -55,17 +68,39 @@ public class ZIPFileContent extends FSTriggerContentFileType {
     @Override
     protected void initForContent(File file) throws XTriggerException {
         try (ZipFile zipFile = new ZipFile(file)) {
-            zipContent = new StringBuilder();
-            fillZipContent(zipFile.entries(), zipContent);
             zipEntries = getListZipEntries(zipFile.entries());
+            zipContent = new StringBuilder();
+            fillZipContent(Collections.enumeration(zipEntries), zipContent);
+            centralDirectoryDigest = getCentralDirectoryDigest(file);
         } catch (IOException ioe) {
             throw new XTriggerException(ioe);
         }
     }
 
+    private String getCentralDirectoryDigest(File file) throws IOException {
+        return FSTriggerZipCentralDirectory.digest(file, FSTriggerDigestAlgorithm.DEFAULT);
+    }
+
     @Override
     protected boolean isTriggeringBuildForContent(File file, XTriggerLog log) throws XTriggerException {
 
+        String newCentralDirectoryDigest;
+        try {
+            newCentralDirectoryDigest = getCentralDirectoryDigest(file);
+        } catch (IOException ioe) {
+            throw new XTriggerException(ioe);
+        }
+        if (centralDirectoryDigest != null && centralDirectoryDigest.equals(newCentralDirectoryDigest)) {
+            log.info(String.format("The central directory of the archive '%s' is unchanged.", file));
+            return false;
+        }
+
+        //The entries are not kept by a serialized memory
+        if (zipEntries == null) {
+            log.info(String.format("The central directory of the archive '%s' has changed.", file));
+            return true;
+        }
+
         List<ZipEntry> newZipEntries;
         try (ZipFile zipFile = new ZipFile(file)) {
             newZipEntries = getListZipEntries(zipFile.entries());
@@ -139,6 +174,14 @@ public class ZIPFileContent extends FSTriggerContentFileType {
                 changed = false;
             }
 
+            //Records the new central directory of unchanged entries, for comparing only its digest at the next poll
+            if (!changed) {
+                centralDirectoryDigest = newCentralDirectoryDigest;
+                zipEntries = newZipEntries;
+                zipContent = new StringBuilder();
+                fillZipContent(Collections.enumeration(newZipEntries), zipContent);
+            }
+
             //Returns true if a logical expression has changed
             return changed;
 
@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+
+/**
+ * The state of an archive recorded by {@link ZIPFileContent}: the digest of its central directory and its entries.
+ * The entries are not serializable, they are only kept in memory.
+ */
+class ZIPFileContentMemory implements Serializable {
+
+    private final String centralDirectoryDigest;
+
+    private final transient List<ZipEntry> entries;
+
+    ZIPFileContentMemory(String centralDirectoryDigest, List<ZipEntry> entries) {
+        this.centralDirectoryDigest = centralDirectoryDigest;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the digest, null when the central directory was not found
+     */
+    String getCentralDirectoryDigest() {
+        return centralDirectoryDigest;
+    }
+
+    /**
+     * @return the entries, null when the memory has been serialized
+     */
+    List<ZipEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Two memories are the same when they have the same digest, the entries are read from the same central directory
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ZIPFileContentMemory)) {
+            return false;
+        }
+        return Objects.equals(centralDirectoryDigest, ((ZIPFileContentMemory) o).centralDirectoryDigest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(centralDirectoryDigest);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
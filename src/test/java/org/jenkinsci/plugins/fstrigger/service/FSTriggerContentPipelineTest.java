@@ -0,0 +1,72 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.PropertiesFileContent;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.SimpleFileContent;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.TextFileContent;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.TextFileContentEntry;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class FSTriggerContentPipelineTest {
+
+    @TempDir
+    File folder;
+
+    @Mock
+    XTriggerLog log;
+
+    private File createFile(byte[] content) throws Exception {
+        File file = new File(folder, "build.properties");
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    void testSeveralTypesReadingTheFileOnce() throws Exception {
+        File file = createFile("version=1\nstatus=running\n".getBytes(StandardCharsets.UTF_8));
+        FSTriggerContentFileType[] types = {new PropertiesFileContent("version", false), new SimpleFileContent()};
+        FSTriggerContentPipeline.initMemoryFields(types, "jobTest", file);
+        assertFalse(FSTriggerContentPipeline.isTriggeringBuild(types, file, log));
+
+        createFile("version=1\nstatus=done\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(FSTriggerContentPipeline.isTriggeringBuild(types, file, log));
+        assertFalse(FSTriggerContentPipeline.isTriggeringBuild(new FSTriggerContentFileType[]{types[0]}, file, log));
+    }
+
+    @Test
+    void testLineSplitBetweenChunks() throws Exception {
+        //The multi-byte character is split by the end of the first buffer
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] padding = new byte[128 * 1024 - 1];
+        Arrays.fill(padding, (byte) 'x');
+        content.write(padding);
+        content.write("\u00e9\r\nresult=\u00e9chec\n".getBytes(StandardCharsets.UTF_8));
+        File file = createFile(content.toByteArray());
+
+        FSTriggerContentFileType[] types = {new TextFileContent(Collections.singletonList(new TextFileContentEntry("result=\u00e9chec")))};
+        FSTriggerContentPipeline.initMemoryFields(types, "jobTest", file);
+        assertTrue(FSTriggerContentPipeline.isTriggeringBuild(types, file, log));
+
+        FSTriggerContentFileType[] otherTypes = {new TextFileContent(Collections.singletonList(new TextFileContentEntry("x*\u00e9")))};
+        assertTrue(FSTriggerContentPipeline.isTriggeringBuild(otherTypes, file, log));
+
+        FSTriggerContentFileType[] noMatchTypes = {new TextFileContent(Collections.singletonList(new TextFileContentEntry("result")))};
+        assertFalse(FSTriggerContentPipeline.isTriggeringBuild(noMatchTypes, file, log));
+    }
+}
@@ -0,0 +1,91 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FSTriggerEnvVarsCacheTest {
+
+    private final AtomicInteger resolutions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        FSTriggerEnvVarsCache.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(FSTriggerEnvVarsCache.MAX_AGE_PROPERTY);
+        FSTriggerEnvVarsCache.invalidate();
+    }
+
+    private Map<String, String> get(String jobName, String nodeName) throws Exception {
+        return FSTriggerEnvVarsCache.get(jobName, nodeName, () -> {
+            resolutions.incrementAndGet();
+            return Collections.singletonMap("JOB", jobName);
+        });
+    }
+
+    @Test
+    void testCached() throws Exception {
+        Map<String, String> envVars = get("job", "");
+        assertEquals("job", envVars.get("JOB"));
+        assertEquals(envVars, get("job", ""));
+        assertEquals(1, resolutions.get());
+        assertThrows(UnsupportedOperationException.class, () -> envVars.put("OTHER", "value"));
+
+        get("job", "agent");
+        get("other", "");
+        assertEquals(3, resolutions.get());
+    }
+
+    @Test
+    void testInvalidateItem() throws Exception {
+        get("folder", "");
+        get("folder/job", "");
+        get("folder2/job", "");
+        FSTriggerEnvVarsCache.invalidateItem("folder");
+        get("folder", "");
+        get("folder/job", "");
+        get("folder2/job", "");
+        assertEquals(5, resolutions.get());
+    }
+
+    @Test
+    void testInvalidateNode() throws Exception {
+        get("job", "agent");
+        get("job", "");
+        FSTriggerEnvVarsCache.invalidateNode("agent");
+        get("job", "agent");
+        get("job", "");
+        assertEquals(3, resolutions.get());
+    }
+
+    @Test
+    void testOtherSavesIgnored() throws Exception {
+        get("job", "");
+        new FSTriggerEnvVarsCache.ConfigurationListener().onChange(() -> {
+        }, null);
+        get("job", "");
+        assertEquals(1, resolutions.get());
+
+        FSTriggerEnvVarsCache.invalidate();
+        get("job", "");
+        assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        System.setProperty(FSTriggerEnvVarsCache.MAX_AGE_PROPERTY, "0");
+        get("job", "");
+        get("job", "");
+        assertEquals(2, resolutions.get());
+    }
+}
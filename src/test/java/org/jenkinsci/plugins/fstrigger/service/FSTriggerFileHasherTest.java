@@ -0,0 +1,106 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class FSTriggerFileHasherTest {
+
+    /**
+     * Samples the files from 64 KB: the first and last 4 KB, and 4 blocks of 1 KB
+     */
+    private static final FSTriggerSampledFingerprint SAMPLING = new FSTriggerSampledFingerprint(64 * 1024, 4096, 4, 1024);
+
+    private static final int FILE_SIZE = 256 * 1024;
+
+    @TempDir
+    File tempDir;
+
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        file = new File(tempDir, "large.bin");
+        Files.write(file.toPath(), content);
+    }
+
+    private String sampledDigest() throws IOException {
+        return FSTriggerFileHasher.digest(file, FSTriggerDigestAlgorithm.XXHASH64, SAMPLING);
+    }
+
+    private void writeByte(long position) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(position);
+            int value = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(value ^ 0xFF);
+        }
+    }
+
+    @Test
+    void testSmallFileIsFullyDigested() throws IOException {
+        File smallFile = new File(tempDir, "small.txt");
+        Files.write(smallFile.toPath(), "content".getBytes());
+        assertEquals(FSTriggerFileHasher.digest(smallFile, FSTriggerDigestAlgorithm.MD5),
+                FSTriggerFileHasher.digest(smallFile, FSTriggerDigestAlgorithm.MD5, SAMPLING));
+    }
+
+    @Test
+    void testSampledDigestIsStable() throws IOException {
+        assertEquals(sampledDigest(), sampledDigest());
+        assertNotEquals(FSTriggerFileHasher.digest(file, FSTriggerDigestAlgorithm.XXHASH64), sampledDigest());
+    }
+
+    @Test
+    void testChangeOfFirstBytes() throws IOException {
+        String digest = sampledDigest();
+        writeByte(10);
+        assertNotEquals(digest, sampledDigest());
+    }
+
+    @Test
+    void testChangeOfLastBytes() throws IOException {
+        String digest = sampledDigest();
+        writeByte(FILE_SIZE - 1);
+        assertNotEquals(digest, sampledDigest());
+    }
+
+    @Test
+    void testChangeOfSampledBlock() throws IOException {
+        String digest = sampledDigest();
+        writeByte(SAMPLING.getBlockPosition(FILE_SIZE, 2) + 100);
+        assertNotEquals(digest, sampledDigest());
+    }
+
+    @Test
+    void testChangeOfSize() throws IOException {
+        String digest = sampledDigest();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            //Only the size changes, the sampled bytes stay the same
+            byte[] last = new byte[4096];
+            randomAccessFile.seek(FILE_SIZE - last.length);
+            randomAccessFile.readFully(last);
+            randomAccessFile.seek(FILE_SIZE - last.length + 1);
+            randomAccessFile.write(last);
+        }
+        assertNotEquals(digest, sampledDigest());
+    }
+
+    @Test
+    void testChangeBetweenSampledBlocksIsNotSeen() throws IOException {
+        String digest = sampledDigest();
+        writeByte(SAMPLING.getBlockPosition(FILE_SIZE, 0) + SAMPLING.getBlockSize() + 10);
+        assertEquals(digest, sampledDigest());
+    }
+}
@@ -0,0 +1,115 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+import org.jenkinsci.plugins.fstrigger.triggers.FileNameTrigger;
+import org.jenkinsci.plugins.fstrigger.triggers.FileNameTriggerInfo;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.SimpleFileContent;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FSTriggerFileNameBatchServiceTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void testEvaluationCallableIsSerializable() throws Exception {
+        File file = new File(folder, "build.log");
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        FileNameTriggerInfo info = new FileNameTriggerInfo();
+        info.setFilePathPattern(folder.getPath() + File.separator + "*.log");
+        info.setStrategy(FileNameTrigger.STRATEGY_LATEST);
+
+        FSTriggerFileNameBatchService.EvaluationCallable callable = new FSTriggerFileNameBatchService.EvaluationCallable(
+                "job", new FileNameTriggerInfo[]{info}, false, new XTriggerLog(TaskListener.NULL), new HashMap<>());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(callable);
+        }
+        FSTriggerFileNameBatchService.EvaluationCallable copy;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (FSTriggerFileNameBatchService.EvaluationCallable) input.readObject();
+        }
+
+        FSTriggerFileNameBatchService.EntryResult[] results = copy.invoke(folder, null);
+        assertEquals(1, results.length);
+        assertEquals(file.getPath(), results[0].getResolvedFile().getRemote());
+        assertFalse(results[0].isChanged());
+    }
+
+    @Test
+    void testUnchangedEntryNotUpdated() throws Exception {
+        File file = new File(folder, "build.log");
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        FileNameTriggerInfo info = new FileNameTriggerInfo();
+        info.setFilePathPattern(folder.getPath() + File.separator + "*.log");
+        info.setStrategy(FileNameTrigger.STRATEGY_LATEST);
+
+        FSTriggerFileNameBatchService.EntryResult[] results = evaluate(info, false);
+        assertTrue(results[0].isUpdated());
+        info.setResolvedFile(results[0].getResolvedFile());
+        info.setLastModifications(results[0].getLastModified());
+
+        results = evaluate(info, true);
+        assertFalse(results[0].isChanged());
+        assertFalse(results[0].isUpdated());
+
+        assertTrue(file.setLastModified(file.lastModified() - 10000L));
+        results = evaluate(info, true);
+        assertTrue(results[0].isUpdated());
+    }
+
+    @Test
+    void testTouchedFileStatRecorded() throws Exception {
+        File file = new File(folder, "build.log");
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        FileNameTriggerInfo info = new FileNameTriggerInfo();
+        info.setFilePathPattern(folder.getPath() + File.separator + "*.log");
+        info.setStrategy(FileNameTrigger.STRATEGY_LATEST);
+        info.setDoNotCheckLastModificationDate(true);
+        info.setInspectingContentFile(true);
+        info.setContentFileTypes(new FSTriggerContentFileType[]{new SimpleFileContent()});
+        refresh(info, evaluate(info, false)[0]);
+
+        //A touch doesn't trigger a build, the stat read before the check is recorded
+        long touched = file.lastModified() - 10000L;
+        assertTrue(file.setLastModified(touched));
+        FSTriggerFileNameBatchService.EntryResult result = evaluate(info, true)[0];
+        assertFalse(result.isChanged());
+        assertTrue(result.isUpdated());
+        assertEquals(FSTriggerFileStat.of(file), result.getFileStat());
+        refresh(info, result);
+
+        //The stat is unchanged, the contents are not inspected again
+        Files.write(file.toPath(), new byte[]{4, 5, 6});
+        assertTrue(file.setLastModified(touched));
+        assertFalse(evaluate(info, true)[0].isChanged());
+    }
+
+    private static void refresh(FileNameTriggerInfo info, FSTriggerFileNameBatchService.EntryResult result) {
+        info.setResolvedFile(result.getResolvedFile());
+        info.setLastModifications(result.getLastModified());
+        info.setFileStat(result.getFileStat());
+    }
+
+    private FSTriggerFileNameBatchService.EntryResult[] evaluate(FileNameTriggerInfo info, boolean compare) {
+        return new FSTriggerFileNameBatchService.EvaluationCallable(
+                "job", new FileNameTriggerInfo[]{info}, compare, new XTriggerLog(TaskListener.NULL), new HashMap<>()).invoke(folder, null);
+    }
+}
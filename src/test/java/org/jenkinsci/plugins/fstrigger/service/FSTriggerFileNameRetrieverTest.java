@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.jenkinsci.plugins.fstrigger.triggers.FileNameTrigger;
+import org.jenkinsci.plugins.fstrigger.triggers.FileNameTriggerInfo;
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(MockitoExtension.class)
+class FSTriggerFileNameRetrieverTest {
+
+    @TempDir
+    File folder;
+
+    @Mock
+    XTriggerLog log;
+
+    private File first;
+
+    private File second;
+
+    private File third;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        first = createFile("build-1.log", 300, 1000000L);
+        second = createFile("build-2.log", 100, 2000000L);
+        third = createFile("build-3.log", 200, 3000000L);
+        createFile("other.txt", 1000, 4000000L);
+    }
+
+    private File createFile(String name, int size, long lastModified) throws IOException {
+        File file = new File(folder, name);
+        Files.write(file.toPath(), new byte[size]);
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+    private File getFile(String pattern, String strategy, int latestRank) throws Exception {
+        FileNameTriggerInfo info = new FileNameTriggerInfo();
+        info.setFilePathPattern(folder.getPath() + File.separator + pattern);
+        info.setStrategy(strategy);
+        info.setLatestRank(latestRank);
+        return new FSTriggerFileNameRetriever(info, log, null).getFile();
+    }
+
+    @Test
+    void testNoMatchingFile() throws Exception {
+        assertNull(getFile("*.xml", FileNameTrigger.STRATEGY_LATEST, 1));
+    }
+
+    @Test
+    void testOneMatchingFile() throws Exception {
+        assertEquals(second, getFile("build-2.log", FileNameTrigger.STRATEGY_IGNORE, 1));
+    }
+
+    @Test
+    void testIgnoreStrategy() throws Exception {
+        assertNull(getFile("*.log", FileNameTrigger.STRATEGY_IGNORE, 1));
+    }
+
+    @Test
+    void testLatestStrategy() throws Exception {
+        assertEquals(third, getFile("*.log", FileNameTrigger.STRATEGY_LATEST, 1));
+    }
+
+    @Test
+    void testOldestStrategy() throws Exception {
+        assertEquals(first, getFile("*.log", FileNameTrigger.STRATEGY_OLDEST, 1));
+    }
+
+    @Test
+    void testLargestStrategy() throws Exception {
+        assertEquals(first, getFile("*.log", FileNameTrigger.STRATEGY_LARGEST, 1));
+    }
+
+    @Test
+    void testNthLatestStrategy() throws Exception {
+        assertEquals(third, getFile("*.log", FileNameTrigger.STRATEGY_NTH_LATEST, 1));
+        assertEquals(second, getFile("*.log", FileNameTrigger.STRATEGY_NTH_LATEST, 2));
+        assertEquals(first, getFile("*.log", FileNameTrigger.STRATEGY_NTH_LATEST, 3));
+        assertNull(getFile("*.log", FileNameTrigger.STRATEGY_NTH_LATEST, 4));
+    }
+
+    @Test
+    void testUnknownStrategy() {
+        assertThrows(RuntimeException.class, () -> getFile("*.log", "UNKNOWN", 1));
+    }
+
+    @Test
+    void testAllMatchingFiles() throws Exception {
+        FileNameTriggerInfo info = new FileNameTriggerInfo();
+        info.setFilePathPattern(folder.getPath() + File.separator + "*.log");
+        info.setStrategy(FileNameTrigger.STRATEGY_ALL);
+        assertEquals(Arrays.asList(first, second, third), new FSTriggerFileNameRetriever(info, log, null).getFiles());
+    }
+}
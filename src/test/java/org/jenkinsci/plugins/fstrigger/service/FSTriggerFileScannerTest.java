@@ -0,0 +1,140 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import hudson.Util;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.FileSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the scanner gives the same files and folders as an Ant file set
+ */
+class FSTriggerFileScannerTest {
+
+    @TempDir
+    File baseDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String[] files = {
+                "a.txt", "b.log", "noext", "a~", ".gitignore", "._meta",
+                "dir1/a.txt", "dir1/b.log", "dir1/sub/c.txt", "dir1/sub/deep/d.txt", "dir1/sub/deep/e.log",
+                "dir2/a.txt", "dir2/CVS/Entries", "dir2/x.TXT", "dir2/ab.txt", "dir2/abc.txt",
+                ".git/config", ".git/objects/pack/p.pack",
+                "build/out/classes/A.class", "build/out/report.txt", "build/tmp/t.txt",
+                "deep/1/2/3/4/5/leaf.txt", "with space/file name.txt"
+        };
+        for (String file : files) {
+            File f = new File(baseDir, file);
+            f.getParentFile().mkdirs();
+            Files.write(f.toPath(), file.getBytes());
+        }
+        new File(baseDir, "emptyDir/emptySub").mkdirs();
+    }
+
+    private void assertSameAsAnt(String includes, String excludes) throws IOException {
+        FileSet fileSet = Util.createFileSet(baseDir, includes == null ? "**" : includes, excludes);
+        DirectoryScanner directoryScanner = fileSet.getDirectoryScanner();
+        Set<String> antFiles = new TreeSet<>(Arrays.asList(directoryScanner.getIncludedFiles()));
+        Set<String> antDirs = new TreeSet<>(Arrays.asList(directoryScanner.getIncludedDirectories()));
+        antDirs.remove("");
+
+        final Set<String> files = new TreeSet<>();
+        final Set<String> dirs = new TreeSet<>();
+        final int prefixLength = baseDir.getPath().length() + 1;
+        new FSTriggerFileScanner(includes, excludes).scan(baseDir, new FSTriggerFileScanner.Visitor() {
+            @Override
+            public void visitFile(File file, java.nio.file.attribute.BasicFileAttributes attributes) {
+                files.add(file.getPath().substring(prefixLength));
+            }
+
+            @Override
+            public void visitDirectory(File dir, java.nio.file.attribute.BasicFileAttributes attributes) {
+                dirs.add(dir.getPath().substring(prefixLength));
+            }
+        });
+
+        String message = String.format("includes='%s' excludes='%s'", includes, excludes);
+        assertEquals(antFiles, files, message);
+        assertEquals(antDirs, dirs, message);
+    }
+
+    @Test
+    void testAllFiles() throws IOException {
+        assertSameAsAnt(null, null);
+        assertSameAsAnt("**/*.*, **/*", null);
+        assertSameAsAnt("**", null);
+    }
+
+    @Test
+    void testWildcardsInNames() throws IOException {
+        assertSameAsAnt("*.txt", null);
+        assertSameAsAnt("**/*.txt", null);
+        assertSameAsAnt("dir2/a?.txt", null);
+        assertSameAsAnt("dir2/a*.txt", null);
+        assertSameAsAnt("**/*.TXT", null);
+        assertSameAsAnt("*", null);
+        assertSameAsAnt("?", null);
+    }
+
+    @Test
+    void testDeepTreeMatch() throws IOException {
+        assertSameAsAnt("dir1/**", null);
+        assertSameAsAnt("dir1/**/*.log", null);
+        assertSameAsAnt("**/deep/**", null);
+        assertSameAsAnt("**/sub/*/*.txt", null);
+        assertSameAsAnt("deep/**/leaf.txt", null);
+        assertSameAsAnt("**/**/a.txt", null);
+    }
+
+    @Test
+    void testTrailingSeparator() throws IOException {
+        assertSameAsAnt("dir1/", null);
+        assertSameAsAnt(null, "build/");
+        assertSameAsAnt("**/*.txt", "dir1/sub/");
+    }
+
+    @Test
+    void testExcludes() throws IOException {
+        assertSameAsAnt(null, "**/*.log");
+        assertSameAsAnt(null, "build/**");
+        assertSameAsAnt(null, "build/**/*.class, dir2/*");
+        assertSameAsAnt("**/*.txt", "**/deep/**");
+        assertSameAsAnt(null, "dir1");
+        assertSameAsAnt(null, "*");
+    }
+
+    @Test
+    void testTopLevelDirectories() throws IOException {
+        assertSameAsAnt("*", "dir2");
+        assertSameAsAnt("*", "build, emptyDir");
+    }
+
+    @Test
+    void testSpacesAndSeparators() throws IOException {
+        assertSameAsAnt(" dir1/*.txt , dir2\\*.txt ", null);
+        assertSameAsAnt("with space/*", null);
+        assertSameAsAnt("/dir1/**", null);
+    }
+
+    @Test
+    void testIsIncluded() {
+        FSTriggerFileScanner scanner = new FSTriggerFileScanner("**/*.txt", "build/**");
+        assertTrue(scanner.isIncluded("dir1" + File.separator + "a.txt"));
+        assertFalse(scanner.isIncluded("build" + File.separator + "a.txt"));
+        assertFalse(scanner.isIncluded("dir1" + File.separator + "a.log"));
+        assertFalse(scanner.isIncluded("dir1" + File.separator + "a.txt~"));
+    }
+}
@@ -0,0 +1,128 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FSTriggerFolderWatcherTest {
+
+    private static final String ID = "FSTriggerFolderWatcherTest";
+
+    private static final long EVENT_TIMEOUT = 10000L;
+
+    @TempDir
+    File tempDir;
+
+    private File root;
+
+    @BeforeEach
+    void setUp() {
+        root = new File(tempDir, "root");
+        assertTrue(new File(root, "src").mkdirs());
+        assertTrue(new File(root, "target").mkdirs());
+    }
+
+    @AfterEach
+    void tearDown() {
+        FSTriggerFolderWatcher.release(ID);
+    }
+
+    private static File createFile(File dir, String name) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), new byte[]{1});
+        return file;
+    }
+
+    /**
+     * Polls the watcher until the given path is reported, the file system events being delivered asynchronously
+     */
+    private static Set<File> pollUntil(FSTriggerFolderWatcher watcher, File expected) throws InterruptedException {
+        Set<File> changedPaths = new HashSet<>();
+        long end = System.currentTimeMillis() + EVENT_TIMEOUT;
+        while (!changedPaths.contains(expected) && System.currentTimeMillis() < end) {
+            FSTriggerFolderWatcher.Events events = watcher.poll();
+            assertFalse(events.isRescanRequired(), events.getRescanReason());
+            changedPaths.addAll(events.getChangedPaths());
+            Thread.sleep(50L);
+        }
+        return changedPaths;
+    }
+
+    @Test
+    void testFirstPollRequiresRescan() throws IOException {
+        FSTriggerFolderWatcher watcher = FSTriggerFolderWatcher.get(ID, root, null, null);
+        assertTrue(watcher.poll().isRescanRequired());
+        assertFalse(watcher.poll().isRescanRequired());
+    }
+
+    @Test
+    void testChangedFiles() throws Exception {
+        FSTriggerFolderWatcher watcher = FSTriggerFolderWatcher.get(ID, root, null, null);
+        watcher.poll();
+
+        File file = createFile(new File(root, "src"), "a.txt");
+        assertTrue(pollUntil(watcher, file).contains(file));
+        assertTrue(watcher.isMonitoredFile(file));
+
+        //The content of a created folder is reported, and the folder is watched
+        File dir = new File(root, "src" + File.separator + "new");
+        assertTrue(dir.mkdir());
+        File nested = createFile(dir, "b.txt");
+        Set<File> changedPaths = pollUntil(watcher, nested);
+        assertTrue(changedPaths.contains(dir));
+        assertTrue(changedPaths.contains(nested));
+
+        File nestedAgain = createFile(dir, "c.txt");
+        assertTrue(pollUntil(watcher, nestedAgain).contains(nestedAgain));
+
+        assertTrue(file.delete());
+        assertTrue(pollUntil(watcher, file).contains(file));
+    }
+
+    @Test
+    void testExcludedFoldersNotWatched() throws Exception {
+        FSTriggerFolderWatcher watcher = FSTriggerFolderWatcher.get(ID, root, null, "target/**");
+        watcher.poll();
+
+        File excluded = createFile(new File(root, "target"), "excluded.txt");
+        File included = createFile(new File(root, "src"), "included.txt");
+        Set<File> changedPaths = pollUntil(watcher, included);
+        assertTrue(changedPaths.contains(included));
+        assertFalse(changedPaths.contains(excluded));
+        assertFalse(watcher.isMonitoredFile(excluded));
+    }
+
+    @Test
+    void testSymbolicLinkFollowed() throws Exception {
+        File external = new File(tempDir, "external");
+        assertTrue(external.mkdir());
+        Files.createSymbolicLink(new File(root, "link").toPath(), external.toPath());
+        FSTriggerFolderWatcher watcher = FSTriggerFolderWatcher.get(ID, root, null, null);
+        watcher.poll();
+
+        createFile(external, "linked.txt");
+        File linked = new File(root, "link" + File.separator + "linked.txt");
+        assertTrue(pollUntil(watcher, linked).contains(linked));
+    }
+
+    @Test
+    void testRelease() throws IOException {
+        FSTriggerFolderWatcher watcher = FSTriggerFolderWatcher.get(ID, root, null, null);
+        watcher.poll();
+        FSTriggerFolderWatcher.release(ID);
+        assertTrue(watcher.poll().isRescanRequired());
+
+        FSTriggerFolderWatcher newWatcher = FSTriggerFolderWatcher.get(ID, root, null, null);
+        assertTrue(newWatcher.poll().isRescanRequired());
+    }
+}
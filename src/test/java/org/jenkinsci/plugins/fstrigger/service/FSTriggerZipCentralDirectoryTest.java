@@ -0,0 +1,67 @@
+package org.jenkinsci.plugins.fstrigger.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FSTriggerZipCentralDirectoryTest {
+
+    private static final long TIME = 1_600_000_000_000L;
+
+    @TempDir
+    File tempDir;
+
+    private File writeZip(String name, String comment, String... contents) throws IOException {
+        File file = new File(tempDir, name);
+        try (OutputStream output = Files.newOutputStream(file.toPath()); ZipOutputStream zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < contents.length; i++) {
+                ZipEntry entry = new ZipEntry("entry" + i + ".txt");
+                entry.setTime(TIME);
+                zip.putNextEntry(entry);
+                zip.write(contents[i].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            if (comment != null) {
+                zip.setComment(comment);
+            }
+        }
+        return file;
+    }
+
+    private static String digest(File file) throws IOException {
+        return FSTriggerZipCentralDirectory.digest(file, FSTriggerDigestAlgorithm.MD5);
+    }
+
+    @Test
+    void testSameEntriesSameDigest() throws IOException {
+        String digest = digest(writeZip("a.zip", null, "one", "two"));
+        assertNotNull(digest);
+        assertEquals(digest, digest(writeZip("b.zip", "a comment", "one", "two")));
+    }
+
+    @Test
+    void testChangedEntryChangedDigest() throws IOException {
+        String digest = digest(writeZip("a.zip", null, "one", "two"));
+        assertNotEquals(digest, digest(writeZip("b.zip", null, "one", "three")));
+        assertNotEquals(digest, digest(writeZip("c.zip", null, "one", "two", "three")));
+    }
+
+    @Test
+    void testNoCentralDirectory() throws IOException {
+        File file = new File(tempDir, "text.zip");
+        Files.write(file.toPath(), "not an archive".getBytes(StandardCharsets.UTF_8));
+        assertNull(digest(file));
+    }
+}
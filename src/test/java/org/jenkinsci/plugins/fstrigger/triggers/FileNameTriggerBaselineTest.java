@@ -0,0 +1,99 @@
+package org.jenkinsci.plugins.fstrigger.triggers;
+
+import hudson.FilePath;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerMonitoredFiles;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.TextFileContent;
+import org.jenkinsci.plugins.fstrigger.triggers.filecontent.TextFileContentEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileNameTriggerBaselineTest {
+
+    private static final String KEY = "/tmp/*.log|LATEST|1|false|false;";
+
+    @TempDir
+    File folder;
+
+    private FileNameTriggerInfo[] createInfos() {
+        FileNameTriggerInfo single = new FileNameTriggerInfo();
+        single.setResolvedFile(new FilePath(new File("/tmp/build.log")));
+        single.setLastModifications(1000L);
+
+        Map<String, String> memoryInfo = Collections.singletonMap("key", "value");
+        FileNameTriggerInfo all = new FileNameTriggerInfo();
+        all.setMonitoredFiles(new FSTriggerMonitoredFiles(
+                new String[]{"/tmp/a.log", "/tmp/b.log"},
+                new long[]{2000L, 3000L},
+                new Object[][]{{memoryInfo}, {new Object()}},
+                new FSTriggerFileStat[]{new FSTriggerFileStat(10L, 2000L, "(dev=1,ino=2)"), null}));
+        return new FileNameTriggerInfo[]{single, all};
+    }
+
+    private XmlFile write(FileNameTriggerInfo[] infos) throws Exception {
+        XmlFile file = new XmlFile(Jenkins.XSTREAM2, new File(folder, "baseline.xml"));
+        FileNameTriggerBaseline.of(infos, KEY).writeTo(file);
+        return file;
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        XmlFile file = write(createInfos());
+
+        FileNameTriggerInfo[] restored = {new FileNameTriggerInfo(), new FileNameTriggerInfo()};
+        FileNameTriggerBaseline.readFrom(file, KEY, 2).applyTo(restored, null);
+
+        assertEquals(new File("/tmp/build.log").getPath(), restored[0].getResolvedFile().getRemote());
+        assertEquals(1000L, restored[0].getLastModifications());
+        assertNull(restored[0].getMonitoredFiles());
+
+        assertNull(restored[1].getResolvedFile());
+        FSTriggerMonitoredFiles files = restored[1].getMonitoredFiles();
+        assertEquals(2, files.size());
+        assertEquals("/tmp/b.log", files.getPath(1));
+        assertEquals(3000L, files.getLastModification(1));
+        assertEquals(new FSTriggerFileStat(10L, 2000L, "(dev=1,ino=2)"), files.getFileStat(0));
+        assertNull(files.getFileStat(1));
+        assertArrayEquals(new Object[]{Collections.singletonMap("key", "value")}, files.getMemoryInfos(0));
+        //A memory information that can't be serialized is initialized again at the next poll
+        assertArrayEquals(new Object[]{null}, files.getMemoryInfos(1));
+    }
+
+    @Test
+    void testStaleBaseline() throws Exception {
+        XmlFile file = write(createInfos());
+        assertNull(FileNameTriggerBaseline.readFrom(file, "/tmp/*.txt|LATEST|1|false|false;", 2));
+        assertNull(FileNameTriggerBaseline.readFrom(file, KEY, 3));
+    }
+
+    @Test
+    void testConfigurationKey() throws Exception {
+        TextFileContent type = new TextFileContent(Collections.singletonList(new TextFileContentEntry("ERROR")));
+        String key = FileNameTrigger.getConfigurationKey(type);
+        assertEquals(key, FileNameTrigger.getConfigurationKey(new TextFileContent(Collections.singletonList(new TextFileContentEntry("ERROR")))));
+        assertNotEquals(key, FileNameTrigger.getConfigurationKey(new TextFileContent(Collections.singletonList(new TextFileContentEntry("FAILURE")))));
+
+        type.setTailMode(true);
+        String tailKey = FileNameTrigger.getConfigurationKey(type);
+        assertNotEquals(key, tailKey);
+
+        //The memory information is not part of the configuration
+        File log = new File(folder, "build.log");
+        Files.write(log.toPath(), "INFO".getBytes(StandardCharsets.UTF_8));
+        type.initMemoryFields("job", log);
+        assertEquals(tailKey, FileNameTrigger.getConfigurationKey(type));
+    }
+}
@@ -0,0 +1,271 @@
+package org.jenkinsci.plugins.fstrigger.triggers;
+
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class FolderContentSnapshotTest {
+
+    private static final String DIGEST_1 = "00112233445566778899aabbccddeeff";
+
+    private static final String DIGEST_2 = "ffeeddccbbaa99887766554433221100";
+
+    @TempDir
+    File tempDir;
+
+    @Mock
+    XTriggerLog log;
+
+    private String root;
+
+    @BeforeEach
+    void setUp() {
+        root = new File(tempDir, "root").getAbsolutePath();
+    }
+
+    private String path(String relativePath) {
+        return root + File.separator + relativePath.replace("/", File.separator);
+    }
+
+    private Map<String, FolderContentTrigger.FileInfo> createFileInfos() {
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = new HashMap<>();
+        fileInfos.put(path("a"), new FolderContentTrigger.FileInfo(null, 1000L, 0L, 1L));
+        fileInfos.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 2000L, 10L, 2L));
+        fileInfos.put(path("a/two.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 3000L, 20L, 3L));
+        fileInfos.put(path("b"), new FolderContentTrigger.FileInfo(null, 4000L, 0L, 4L));
+        fileInfos.put(path("b/three.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 5000L, 30L, 5L));
+        fileInfos.put(path("root.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 6000L, 40L, 6L));
+        return fileInfos;
+    }
+
+    private FolderContentSnapshot build(Map<String, FolderContentTrigger.FileInfo> fileInfos) {
+        return FolderContentSnapshot.build(root, fileInfos, true, true, "MD5");
+    }
+
+    @Test
+    void testGet() {
+        FolderContentSnapshot snapshot = build(createFileInfos());
+        assertEquals(6, snapshot.size());
+        FolderContentTrigger.FileInfo fileInfo = snapshot.get(path("a/two.txt"));
+        assertEquals(DIGEST_2, fileInfo.getMd5());
+        assertEquals(3000L, fileInfo.getLastModified());
+        assertEquals(20L, fileInfo.getSize());
+        assertEquals(3L, fileInfo.getFileKey());
+        assertNull(snapshot.get(path("b")).getMd5());
+        assertNull(snapshot.get(path("missing.txt")));
+    }
+
+    @Test
+    void testPersistedRoundTrip() throws IOException {
+        FolderContentSnapshot snapshot = build(createFileInfos());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out, "key");
+
+        FolderContentSnapshot read = FolderContentSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()), "key");
+        assertTrue(read.hasSameContent(snapshot));
+        assertTrue(read.isSameAs(snapshot));
+        assertEquals(DIGEST_1, read.get(path("b/three.txt")).getMd5());
+        assertFalse(read.hasChangedSince(snapshot, true, true, log));
+
+        assertNull(FolderContentSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()), "otherKey"));
+    }
+
+    @Test
+    void testIsSameAsWithoutDigestedDatesAndContents() {
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        FolderContentSnapshot snapshot = FolderContentSnapshot.build(root, fileInfos, false, false, "MD5");
+        assertTrue(FolderContentSnapshot.build(root, fileInfos, false, false, "MD5").isSameAs(snapshot));
+
+        fileInfos.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 2500L, 10L, 2L));
+        assertFalse(FolderContentSnapshot.build(root, fileInfos, false, false, "MD5").isSameAs(snapshot));
+    }
+
+    @Test
+    void testIsSameAsWithChangedSizeOrFileKey() {
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        FolderContentSnapshot snapshot = build(fileInfos);
+
+        fileInfos.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 2000L, 11L, 2L));
+        assertFalse(build(fileInfos).isSameAs(snapshot));
+
+        fileInfos.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 2000L, 10L, 7L));
+        assertFalse(build(fileInfos).isSameAs(snapshot));
+    }
+
+    @Test
+    void testHasChangedSince() {
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        FolderContentSnapshot previous = build(fileInfos);
+        assertFalse(build(fileInfos).hasChangedSince(previous, true, true, log));
+
+        //A new file is not a change of the recorded files
+        fileInfos.put(path("b/four.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 7000L, 50L, 8L));
+        assertFalse(build(fileInfos).hasChangedSince(previous, true, true, log));
+
+        Map<String, FolderContentTrigger.FileInfo> modifiedContent = createFileInfos();
+        modifiedContent.put(path("b/three.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 5000L, 30L, 5L));
+        assertTrue(build(modifiedContent).hasChangedSince(previous, true, true, log));
+        assertFalse(build(modifiedContent).hasChangedSince(previous, true, false, log));
+
+        Map<String, FolderContentTrigger.FileInfo> modifiedDate = createFileInfos();
+        modifiedDate.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 2500L, 10L, 2L));
+        assertTrue(build(modifiedDate).hasChangedSince(previous, true, true, log));
+        assertFalse(build(modifiedDate).hasChangedSince(previous, false, true, log));
+
+        Map<String, FolderContentTrigger.FileInfo> removed = createFileInfos();
+        removed.remove(path("a/two.txt"));
+        assertTrue(build(removed).hasChangedSince(previous, true, true, log));
+    }
+
+    @Test
+    void testWithChanges() {
+        FolderContentSnapshot snapshot = build(createFileInfos());
+        Map<String, FolderContentTrigger.FileInfo> updated = new HashMap<>();
+        updated.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 2500L, 12L, 2L));
+        updated.put(path("c.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 8000L, 60L, 9L));
+
+        FolderContentSnapshot changed = snapshot.withChanges(updated, Collections.singleton(path("b")));
+
+        Map<String, FolderContentTrigger.FileInfo> expected = createFileInfos();
+        expected.putAll(updated);
+        expected.remove(path("b"));
+        expected.remove(path("b/three.txt"));
+        assertTrue(changed.hasSameContent(build(expected)));
+        assertTrue(changed.hasChangedSince(snapshot, true, true, log));
+    }
+
+    @Test
+    void testCollectChangesSince() {
+        FolderContentSnapshot previous = build(createFileInfos());
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        fileInfos.put(path("a/one.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 2000L, 10L, 12L));
+        fileInfos.put(path("a/zero.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 9000L, 70L, 10L));
+        fileInfos.remove(path("b"));
+        fileInfos.remove(path("b/three.txt"));
+        FolderContentSnapshot snapshot = build(fileInfos);
+
+        Map<String, FolderContentTrigger.FileInfo> updated = new LinkedHashMap<>();
+        Set<String> removed = new HashSet<>();
+        snapshot.collectChangesSince(previous, updated, removed);
+        assertEquals(2, updated.size());
+        assertEquals(12L, updated.get(path("a/one.txt")).getFileKey());
+        assertEquals(DIGEST_2, updated.get(path("a/zero.txt")).getMd5());
+        assertEquals(new HashSet<>(Arrays.asList(path("b"), path("b/three.txt"))), removed);
+
+        FolderContentSnapshot applied = previous.withChanges(updated, removed);
+        assertTrue(applied.hasSameContent(snapshot));
+        assertEquals(snapshot.getFingerprint(), applied.getFingerprint());
+        assertNotEquals(previous.getFingerprint(), snapshot.getFingerprint());
+    }
+
+    @Test
+    void testFingerprint() {
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        FolderContentSnapshot snapshot = FolderContentSnapshot.build(root, fileInfos, false, true, "MD5");
+        assertEquals(snapshot.getFingerprint(), FolderContentSnapshot.build(root, fileInfos, false, true, "MD5").getFingerprint());
+        assertNotEquals(snapshot.getFingerprint(), FolderContentSnapshot.build(root, fileInfos, true, true, "MD5").getFingerprint());
+
+        //The dates are not part of the folder digests, but they are part of the fingerprint
+        fileInfos.put(path("root.txt"), new FolderContentTrigger.FileInfo(DIGEST_2, 6500L, 40L, 6L));
+        assertNotEquals(snapshot.getFingerprint(), FolderContentSnapshot.build(root, fileInfos, false, true, "MD5").getFingerprint());
+        assertNull(FolderContentSnapshot.empty().getFingerprint());
+    }
+
+    @Test
+    void testMemorySize() {
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        long size = build(fileInfos).getMemorySize();
+        fileInfos.put(path("c.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 8000L, 60L, 9L));
+        assertTrue(build(fileInfos).getMemorySize() > size);
+        assertTrue(FolderContentSnapshot.empty().getMemorySize() < size);
+    }
+
+    @Test
+    void testFolderChangesApplicableTo() {
+        FolderContentSnapshot previous = build(createFileInfos());
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = createFileInfos();
+        fileInfos.put(path("c.txt"), new FolderContentTrigger.FileInfo(DIGEST_1, 8000L, 60L, 9L));
+        FolderContentSnapshot snapshot = build(fileInfos);
+        Map<String, FolderContentTrigger.FileInfo> updated = new LinkedHashMap<>();
+        Set<String> removed = new HashSet<>();
+        snapshot.collectChangesSince(previous, updated, removed);
+
+        FolderContentTrigger.FolderChanges changes = FolderContentTrigger.FolderChanges.comparedDelta(updated, removed, snapshot.getFingerprint(), true);
+        assertTrue(changes.isApplicableTo(previous));
+        assertTrue(changes.applyTo(previous).hasSameContent(snapshot));
+
+        Map<String, FolderContentTrigger.FileInfo> otherFileInfos = createFileInfos();
+        otherFileInfos.remove(path("root.txt"));
+        assertFalse(changes.isApplicableTo(build(otherFileInfos)));
+        assertFalse(changes.isApplicableTo(FolderContentSnapshot.empty()));
+    }
+
+    @Test
+    void testCorruptedSnapshot() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        build(createFileInfos()).writeTo(out, "key");
+        byte[] bytes = out.toByteArray();
+
+        //The count and the length of the paths follow the header
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(header);
+        data.writeInt(0);
+        data.writeInt(0);
+        data.writeUTF("key");
+        data.writeBoolean(true);
+        data.writeUTF(root);
+        data.writeUTF(File.separator);
+        data.writeBoolean(true);
+        data.writeBoolean(true);
+        data.writeBoolean(true);
+        data.writeUTF("MD5");
+        int countOffset = header.size();
+
+        assertCorrupted(Arrays.copyOf(bytes, bytes.length - 10));
+        assertCorrupted(corrupt(bytes, countOffset, -1));
+        assertCorrupted(corrupt(bytes, countOffset, Integer.MAX_VALUE));
+        assertCorrupted(corrupt(bytes, countOffset + 4, -1));
+        assertCorrupted(corrupt(bytes, countOffset + 4, Integer.MAX_VALUE));
+
+        //The first path is stored whole, a shared prefix can't be decoded
+        byte[] invalidPath = bytes.clone();
+        invalidPath[countOffset + 8] = 5;
+        assertCorrupted(invalidPath);
+    }
+
+    private static byte[] corrupt(byte[] bytes, int offset, int value) {
+        byte[] corrupted = bytes.clone();
+        ByteBuffer.wrap(corrupted).putInt(offset, value);
+        return corrupted;
+    }
+
+    private static void assertCorrupted(byte[] bytes) {
+        assertThrows(IOException.class, () -> FolderContentSnapshot.readFrom(new ByteArrayInputStream(bytes), "key"));
+    }
+}
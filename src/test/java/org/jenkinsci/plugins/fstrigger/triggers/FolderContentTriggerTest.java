@@ -0,0 +1,155 @@
+package org.jenkinsci.plugins.fstrigger.triggers;
+
+import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@ExtendWith(MockitoExtension.class)
+class FolderContentTriggerTest {
+
+    @TempDir
+    File tempDir;
+
+    @Mock
+    XTriggerLog log;
+
+    private String root;
+
+    private File one;
+
+    private File two;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = tempDir.getAbsolutePath();
+        one = write("one.txt", "one");
+        two = write("two.txt", "two");
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = new File(tempDir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private FolderContentTrigger createTrigger() throws Exception {
+        return new FolderContentTrigger("* * * * *", root, null, null, false, false, false);
+    }
+
+    /**
+     * Records the stat of the files of the snapshot with the digest of the other file,
+     * so a reused digest can be told apart from a computed one
+     */
+    private FolderContentSnapshot swapDigests(FolderContentSnapshot snapshot) {
+        FolderContentTrigger.FileInfo oneInfo = snapshot.get(one.getAbsolutePath());
+        FolderContentTrigger.FileInfo twoInfo = snapshot.get(two.getAbsolutePath());
+        Map<String, FolderContentTrigger.FileInfo> fileInfos = new HashMap<>();
+        fileInfos.put(one.getAbsolutePath(), new FolderContentTrigger.FileInfo(twoInfo.getMd5(), oneInfo.getLastModified(), oneInfo.getSize(), oneInfo.getFileKey()));
+        fileInfos.put(two.getAbsolutePath(), new FolderContentTrigger.FileInfo(oneInfo.getMd5(), twoInfo.getLastModified(), twoInfo.getSize(), twoInfo.getFileKey()));
+        return FolderContentSnapshot.build(root, fileInfos, true, true, snapshot.getDigestAlgorithm());
+    }
+
+    @Test
+    void testNodeSnapshotsBoundedBySize() throws Exception {
+        FolderContentSnapshot nodeSnapshot = createTrigger().getFolderSnapshot(root, null, null, null, log);
+        System.setProperty(FolderContentTrigger.MAX_NODE_SNAPSHOTS_SIZE_PROPERTY, String.valueOf(2 * nodeSnapshot.getMemorySize()));
+        try {
+            FolderContentTrigger.putNodeSnapshot("first", nodeSnapshot);
+            FolderContentTrigger.putNodeSnapshot("second", nodeSnapshot);
+            assertSame(nodeSnapshot, FolderContentTrigger.getNodeSnapshot("first"));
+
+            //The least recently used entry is evicted
+            FolderContentTrigger.putNodeSnapshot("third", nodeSnapshot);
+            assertNull(FolderContentTrigger.getNodeSnapshot("second"));
+            assertSame(nodeSnapshot, FolderContentTrigger.getNodeSnapshot("first"));
+            assertSame(nodeSnapshot, FolderContentTrigger.getNodeSnapshot("third"));
+        } finally {
+            System.clearProperty(FolderContentTrigger.MAX_NODE_SNAPSHOTS_SIZE_PROPERTY);
+            FolderContentTrigger.removeNodeSnapshot("first");
+            FolderContentTrigger.removeNodeSnapshot("second");
+            FolderContentTrigger.removeNodeSnapshot("third");
+        }
+    }
+
+    @Test
+    void testDigestReusedForUnchangedStat() throws Exception {
+        FolderContentTrigger trigger = createTrigger();
+        FolderContentSnapshot first = trigger.getFolderSnapshot(root, null, null, null, log);
+        FolderContentSnapshot baseline = swapDigests(first);
+
+        //The size of the second file changes, its content is read again
+        write("two.txt", "three");
+        FolderContentSnapshot second = trigger.getFolderSnapshot(root, null, null, baseline, log);
+        assertEquals(first.get(two.getAbsolutePath()).getMd5(), second.get(one.getAbsolutePath()).getMd5());
+        String twoDigest = second.get(two.getAbsolutePath()).getMd5();
+        assertNotEquals(first.get(one.getAbsolutePath()).getMd5(), twoDigest);
+        assertEquals(trigger.getFolderSnapshot(root, null, null, null, log).get(two.getAbsolutePath()).getMd5(), twoDigest);
+    }
+
+    @Test
+    void testWatchedRescanReusesDigests() throws Exception {
+        FolderContentTrigger trigger = createTrigger();
+        FolderContentSnapshot first = trigger.getFolderSnapshot(root, null, null, null, log);
+        String oneDigest = first.get(one.getAbsolutePath()).getMd5();
+        String twoDigest = first.get(two.getAbsolutePath()).getMd5();
+        FolderContentSnapshot baseline = swapDigests(first);
+
+        //On the built-in node, the snapshot of the trigger is the baseline
+        FolderContentSnapshot local = trigger.getWatchedSnapshot("watch", root, null, null, baseline, true, log).applyTo(null);
+        assertEquals(twoDigest, local.get(one.getAbsolutePath()).getMd5());
+        assertNull(FolderContentTrigger.getNodeSnapshot("watch"));
+
+        //On an agent, the full snapshot kept for the node is the baseline of the next rescan
+        try {
+            FolderContentTrigger.putNodeSnapshot("watch", baseline);
+            FolderContentSnapshot rescanned = trigger.getWatchedSnapshot("watch", root, null, null, null, true, log).applyTo(null);
+            assertEquals(oneDigest, rescanned.get(two.getAbsolutePath()).getMd5());
+            assertSame(rescanned, FolderContentTrigger.getNodeSnapshot("watch"));
+
+            FolderContentSnapshot computed = trigger.getWatchedSnapshot("watch", root, null, null, null, false, log).applyTo(null);
+            assertEquals(oneDigest, computed.get(one.getAbsolutePath()).getMd5());
+        } finally {
+            FolderContentTrigger.removeNodeSnapshot("watch");
+        }
+    }
+
+    @Test
+    void testDigestNotReusedForChangedLastModification() throws Exception {
+        FolderContentTrigger trigger = createTrigger();
+        FolderContentSnapshot first = trigger.getFolderSnapshot(root, null, null, null, log);
+        FolderContentSnapshot baseline = swapDigests(first);
+
+        one.setLastModified(one.lastModified() - 10000L);
+        FolderContentSnapshot second = trigger.getFolderSnapshot(root, null, null, baseline, log);
+        assertEquals(first.get(one.getAbsolutePath()).getMd5(), second.get(one.getAbsolutePath()).getMd5());
+        assertEquals(first.get(one.getAbsolutePath()).getMd5(), second.get(two.getAbsolutePath()).getMd5());
+    }
+
+    @Test
+    void testDigestNotReusedForAnotherAlgorithm() throws Exception {
+        FolderContentTrigger trigger = createTrigger();
+        FolderContentSnapshot baseline = swapDigests(trigger.getFolderSnapshot(root, null, null, null, log));
+
+        trigger.setDigestAlgorithm("SHA-256");
+        FolderContentSnapshot expected = trigger.getFolderSnapshot(root, null, null, null, log);
+        FolderContentSnapshot second = trigger.getFolderSnapshot(root, null, null, baseline, log);
+        assertEquals("SHA-256", second.getDigestAlgorithm());
+        assertEquals(expected.get(one.getAbsolutePath()).getMd5(), second.get(one.getAbsolutePath()).getMd5());
+        assertEquals(expected.get(two.getAbsolutePath()).getMd5(), second.get(two.getAbsolutePath()).getMd5());
+    }
+}
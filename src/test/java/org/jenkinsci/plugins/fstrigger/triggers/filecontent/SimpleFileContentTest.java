@@ -3,6 +3,7 @@ package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.core.FSTriggerFileStat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -74,4 +75,45 @@ class SimpleFileContentTest extends FileContentAbstractTest {
         assertTrue(type.isTriggeringBuild(newFile, log));
     }
 
+    @Test
+    void testPollingWithAnotherDigestAlgorithm() throws Exception {
+        File initFile = new File(this.getClass().getResource("SimpleFileContent/initFile.txt").toURI());
+        File newFile = new File(this.getClass().getResource("SimpleFileContent/newFile.txt").toURI());
+        ((SimpleFileContent) type).setDigestAlgorithm("XXHASH64");
+        initType(initFile);
+        assertFalse(type.isTriggeringBuild(initFile, log));
+        assertTrue(type.isTriggeringBuild(newFile, log));
+    }
+
+    @Test
+    void testChangeOfDigestAlgorithmDoesNotTrigger() throws Exception {
+        File initFile = new File(this.getClass().getResource("SimpleFileContent/initFile.txt").toURI());
+        File newFile = new File(this.getClass().getResource("SimpleFileContent/newFile.txt").toURI());
+        initType(initFile);
+        ((SimpleFileContent) type).setDigestAlgorithm("CRC32C");
+        assertFalse(type.isTriggeringBuild(newFile, log));
+        assertTrue(type.isTriggeringBuild(initFile, log));
+    }
+
+    @Test
+    void testChangeOfSampledFingerprintThresholdDoesNotTrigger() throws Exception {
+        File initFile = new File(this.getClass().getResource("SimpleFileContent/initFile.txt").toURI());
+        File newFile = new File(this.getClass().getResource("SimpleFileContent/newFile.txt").toURI());
+        initType(initFile);
+        ((SimpleFileContent) type).setSampledFingerprintThreshold(1);
+        assertFalse(type.isTriggeringBuild(newFile, log));
+        assertTrue(type.isTriggeringBuild(initFile, log));
+    }
+
+    @Test
+    void testUnchangedFileStatSkipsInspection() throws Exception {
+        File initFile = new File(this.getClass().getResource("SimpleFileContent/initFile.txt").toURI());
+        File newFile = new File(this.getClass().getResource("SimpleFileContent/newFile.txt").toURI());
+        initType(initFile);
+        type.setFileStat(FSTriggerFileStat.of(newFile));
+        assertFalse(type.isTriggeringBuild(newFile, log));
+        type.setAlwaysInspectContent(true);
+        assertTrue(type.isTriggeringBuild(newFile, log));
+    }
+
 }
@@ -0,0 +1,96 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextFileContentMatcherTest {
+
+    @Test
+    void testRequiredLiteral() {
+        assertEquals("ERROR", TextFileContentMatcher.getRequiredLiteral("\\w*ERROR\\s*\\w*"));
+        assertEquals("BUILD FAILED", TextFileContentMatcher.getRequiredLiteral(".*BUILD FAILED.*"));
+        assertEquals(", failure", TextFileContentMatcher.getRequiredLiteral("[0-9]+ tests?, failure"));
+        assertEquals("v1.", TextFileContentMatcher.getRequiredLiteral("v1\\.\\d+"));
+        assertEquals("abc", TextFileContentMatcher.getRequiredLiteral("abc+d*"));
+        assertEquals("end", TextFileContentMatcher.getRequiredLiteral("(a|b)x{2,3}end"));
+        assertNull(TextFileContentMatcher.getRequiredLiteral("ERROR|WARNING"));
+        assertNull(TextFileContentMatcher.getRequiredLiteral("(?i)error"));
+        assertNull(TextFileContentMatcher.getRequiredLiteral("\\Qa.b\\E"));
+        assertNull(TextFileContentMatcher.getRequiredLiteral(".*"));
+    }
+
+    @Test
+    void testSameResultAsEachPattern() {
+        List<String> regexes = Arrays.asList("\\w*ERROR\\s*\\w*", ".*BUILD (FAILED|UNSTABLE).*", "ERROR|WARN.*", "[]x]+ERR.*", "caf\u00e9 \\d+");
+        List<String> lines = Arrays.asList("", "ERROR", "an ERROR here", "ERRORS found", "BUILD FAILED", "[INFO] BUILD UNSTABLE now",
+                "WARNING: x", "x]ERR", "caf\u00e9 42", "caf\u00e9 x", "ERRERROR", "no match at all");
+
+        List<TextFileContentEntry> entries = new ArrayList<>();
+        for (String regex : regexes) {
+            entries.add(new TextFileContentEntry(regex));
+        }
+        TextFileContentMatcher matcher = TextFileContentMatcher.get(entries);
+        TextFileContentMatcher.Session session = matcher.newSession();
+
+        int matchingLines = 0;
+        for (String line : lines) {
+            int expected = -1;
+            for (int i = 0; i < regexes.size() && expected == -1; i++) {
+                if (Pattern.compile(regexes.get(i)).matcher(line).matches()) {
+                    expected = i;
+                }
+            }
+            for (int i = 0; i < line.length(); i++) {
+                session.next(line.charAt(i));
+            }
+            assertEquals(expected, session.matchLine(line), line);
+            matchingLines += (expected == -1) ? 0 : 1;
+        }
+        assertTrue(matchingLines > 5);
+    }
+
+    @Test
+    void testByteScan() {
+        List<String> regexes = Arrays.asList("\\w*ERROR\\s*\\w*", ".*BUILD FAILED.*", "caf\u00e9 \\d+");
+        List<String> lines = Arrays.asList("", "ERROR", "an ERROR here", "BUILD FAILED", "caf\u00e9 42", "cafe 42", "\u00e9\u00e9 ERRO", "no match");
+
+        List<TextFileContentEntry> entries = new ArrayList<>();
+        for (String regex : regexes) {
+            entries.add(new TextFileContentEntry(regex));
+        }
+        TextFileContentMatcher matcher = TextFileContentMatcher.get(entries);
+        assertTrue(matcher.isByteScanSupported());
+        TextFileContentMatcher.Session session = matcher.newSession();
+
+        for (String line : lines) {
+            int expected = -1;
+            for (int i = 0; i < regexes.size() && expected == -1; i++) {
+                if (Pattern.compile(regexes.get(i)).matcher(line).matches()) {
+                    expected = i;
+                }
+            }
+            for (byte b : line.getBytes(StandardCharsets.UTF_8)) {
+                session.next(b);
+            }
+            if (expected != -1) {
+                assertTrue(session.hasCandidate(), line);
+            }
+            assertEquals(expected, session.hasCandidate() ? session.matchLine(line) : -1, line);
+            session.reset();
+        }
+
+        List<TextFileContentEntry> noLiteral = new ArrayList<>(entries);
+        noLiteral.add(new TextFileContentEntry(".*"));
+        assertFalse(TextFileContentMatcher.get(noLiteral).isByteScanSupported());
+    }
+}
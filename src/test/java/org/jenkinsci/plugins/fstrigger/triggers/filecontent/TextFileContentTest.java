@@ -3,16 +3,22 @@ package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
 import org.jenkinsci.plugins.xtriggerapi.XTriggerLog;
 import org.jenkinsci.plugins.fstrigger.core.FSTriggerContentFileType;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerHashingEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -28,6 +34,9 @@ class TextFileContentTest extends FileContentAbstractTest {
     @Mock
     protected XTriggerLog log;
 
+    @TempDir
+    File tempDir;
+
     @Override
     protected FSTriggerContentFileType getTypeInstance() {
         return type;
@@ -78,4 +87,93 @@ class TextFileContentTest extends FileContentAbstractTest {
         File newFile = new File(this.getClass().getResource("LogTextFileContent/newLog.txt").toURI());
         assertTrue(type.isTriggeringBuild(newFile, log));
     }
+
+    @Test
+    void testPollingTailMode() throws Exception {
+        File logFile = new File(tempDir, "build.log");
+        Files.write(logFile.toPath(), "ERROR first\nok\n".getBytes(StandardCharsets.UTF_8));
+        ((TextFileContent) type).setTailMode(true);
+        initType(logFile);
+        assertFalse(type.isTriggeringBuild(logFile, log));
+
+        append(logFile, "nothing\r");
+        assertFalse(type.isTriggeringBuild(logFile, log));
+        //The line is not complete yet
+        append(logFile, "\nERROR");
+        assertFalse(type.isTriggeringBuild(logFile, log));
+        append(logFile, " now\n");
+        assertTrue(type.isTriggeringBuild(logFile, log));
+        assertFalse(type.isTriggeringBuild(logFile, log));
+
+        //A truncated file is scanned from the start
+        Files.write(logFile.toPath(), "ERROR\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(type.isTriggeringBuild(logFile, log));
+    }
+
+    @Test
+    void testPollingChunks() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String line = (i == 700) ? "ERROR early" : (i == 1500) ? "ERROR late" : "line " + i;
+            content.append(line).append((i % 2 == 0) ? "\r\n" : "\n");
+        }
+        File logFile = new File(tempDir, "large.log");
+        Files.write(logFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<String> messages = new ArrayList<>();
+        XTriggerLog recordingLog = new XTriggerLog(null) {
+            @Override
+            public void info(String message) {
+                messages.add(message);
+            }
+        };
+        TextFileContent textType = (TextFileContent) type;
+        assertTrue(textType.isTriggeringBuildForChunks(logFile, recordingLog, new TextFileContentChunkScanner(4, 1024)));
+        assertTrue(messages.get(messages.size() - 1).contains("'ERROR early'"), messages.toString());
+
+        Files.write(logFile.toPath(), content.toString().replace("ERROR", "INFO").getBytes(StandardCharsets.UTF_8));
+        assertFalse(textType.isTriggeringBuildForChunks(logFile, log, new TextFileContentChunkScanner(4, 1024)));
+    }
+
+    @Test
+    void testPollingLongLines() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            longLine.append('a');
+        }
+        File logFile = new File(tempDir, "long.log");
+        Files.write(logFile.toPath(), ("caf\u00e9\r\n" + longLine + "\r\nlast").getBytes(StandardCharsets.UTF_8));
+        initType(logFile);
+        assertFalse(type.isTriggeringBuild(logFile, log));
+
+        Files.write(logFile.toPath(), ("caf\u00e9\r\n" + longLine + "ERROR\r\nlast").getBytes(StandardCharsets.UTF_8));
+        assertTrue(type.isTriggeringBuild(logFile, log));
+        Files.write(logFile.toPath(), ("caf\u00e9\r\n" + longLine + "\r\nERROR last").getBytes(StandardCharsets.UTF_8));
+        assertTrue(type.isTriggeringBuild(logFile, log));
+    }
+
+    @Test
+    void testParallelScanThreads() {
+        try {
+            int defaultThreads = TextFileContent.getParallelScanThreads();
+            assertTrue(defaultThreads >= 1 && defaultThreads <= 4);
+
+            System.setProperty(TextFileContent.PARALLEL_SCAN_THREADS_PROPERTY, "1");
+            assertEquals(1, TextFileContent.getParallelScanThreads());
+            System.setProperty(TextFileContent.PARALLEL_SCAN_THREADS_PROPERTY, "0");
+            assertEquals(1, TextFileContent.getParallelScanThreads());
+
+            //The folder hashing parallelism doesn't change the text scan
+            System.clearProperty(TextFileContent.PARALLEL_SCAN_THREADS_PROPERTY);
+            System.setProperty(FSTriggerHashingEngine.PARALLELISM_PROPERTY, "1");
+            assertEquals(defaultThreads, TextFileContent.getParallelScanThreads());
+        } finally {
+            System.clearProperty(TextFileContent.PARALLEL_SCAN_THREADS_PROPERTY);
+            System.clearProperty(FSTriggerHashingEngine.PARALLELISM_PROPERTY);
+        }
+    }
+
+    private static void append(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
 }
@@ -0,0 +1,50 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.xpath.XPathExpression;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class XMLFileContentParsersTest {
+
+    @Test
+    void testDocumentBuilderReused() throws Exception {
+        DocumentBuilder builder = XMLFileContentParsers.acquireDocumentBuilder();
+        XMLFileContentParsers.releaseDocumentBuilder(builder);
+        assertSame(builder, XMLFileContentParsers.acquireDocumentBuilder());
+        XMLFileContentParsers.releaseDocumentBuilder(builder);
+    }
+
+    @Test
+    void testDoctypeStillDisallowed() throws Exception {
+        DocumentBuilder builder = XMLFileContentParsers.acquireDocumentBuilder();
+        try {
+            byte[] xml = "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY e \"x\">]><a>&e;</a>".getBytes(StandardCharsets.UTF_8);
+            assertThrows(Exception.class, () -> builder.parse(new ByteArrayInputStream(xml)));
+        } finally {
+            XMLFileContentParsers.releaseDocumentBuilder(builder);
+        }
+    }
+
+    @Test
+    void testExpressionReused() throws Exception {
+        String expression = "count(/a/b)";
+        XPathExpression first = XMLFileContentParsers.acquireExpression(expression);
+        XPathExpression second = XMLFileContentParsers.acquireExpression(expression);
+        assertNotSame(first, second);
+        XMLFileContentParsers.releaseExpression(expression, first);
+        assertSame(first, XMLFileContentParsers.acquireExpression(expression));
+
+        DocumentBuilder builder = XMLFileContentParsers.acquireDocumentBuilder();
+        byte[] xml = "<a><b/><b/></a>".getBytes(StandardCharsets.UTF_8);
+        assertEquals("2", first.evaluate(builder.parse(new ByteArrayInputStream(xml))));
+        XMLFileContentParsers.releaseDocumentBuilder(builder);
+    }
+}
@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
+
+import org.jenkinsci.plugins.xtriggerapi.XTriggerException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathFactory;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XMLFileContentStreamEvaluatorTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<testsuites xmlns:x=\"urn:x\">\n"
+            + "  <testsuite name=\"a\" tests=\"2\">\n"
+            + "    <testcase name=\"t1\" x:status=\"ok\">first <![CDATA[<cdata>]]> &amp; end</testcase>\n"
+            + "    <testcase name=\"t2\"><failure message=\"boom\">trace</failure></testcase>\n"
+            + "  </testsuite>\n"
+            + "  <!-- comment -->\n"
+            + "  <testsuite name=\"b\" tests=\"1\">\n"
+            + "    <testcase name=\"t3\"><skipped/>text<!-- c -->after</testcase>\n"
+            + "  </testsuite>\n"
+            + "</testsuites>\n";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testSameResultsAsXPath() throws Exception {
+        List<String> expressions = Arrays.asList(
+                "/testsuites/testsuite[1]/@name",
+                "/testsuites/testsuite[2]/@tests",
+                "/testsuites/testsuite/testcase",
+                "/testsuites/testsuite/testcase[2]",
+                "/testsuites/testsuite/testcase[@name='t3']/text()",
+                "/testsuites/testsuite/testcase/@status",
+                "/testsuites/testsuite[@name=\"b\"]/testcase/@name",
+                "/testsuites/testsuite/testcase[@name][2]/@name",
+                "/testsuites/testsuite/testcase[2][@name='t3']/@name",
+                "/testsuites/testsuite",
+                "/testsuites/missing",
+                "count(/testsuites/testsuite/testcase)",
+                "count(/testsuites/testsuite/testcase/failure/@message)",
+                "count(/other)");
+        File file = new File(tempDir, "results.xml");
+        Files.write(file.toPath(), XML.getBytes(StandardCharsets.UTF_8));
+
+        XMLFileContentStreamEvaluator evaluator = new XMLFileContentStreamEvaluator(expressions);
+        assertTrue(evaluator.getUnsupportedExpressions().isEmpty());
+        Map<String, Object> results = evaluator.evaluate(file);
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+        for (String expression : expressions) {
+            assertEquals(XPathFactory.newInstance().newXPath().compile(expression).evaluate(document), results.get(expression), expression);
+        }
+    }
+
+    @Test
+    void testUnsupportedExpressions() {
+        List<String> expressions = Arrays.asList("//testcase", "/a/b[last()]", "/a/*", "sum(/a/@n)", "/a/b/..", "count(/a/text())", "/a/@xmlns");
+        XMLFileContentStreamEvaluator evaluator = new XMLFileContentStreamEvaluator(expressions);
+        assertEquals(expressions, evaluator.getUnsupportedExpressions());
+    }
+
+    @Test
+    void testDoctypeNotAllowed() throws Exception {
+        File file = new File(tempDir, "doctype.xml");
+        Files.write(file.toPath(), "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY e \"x\">]><a>&e;</a>".getBytes(StandardCharsets.UTF_8));
+        XMLFileContentStreamEvaluator evaluator = new XMLFileContentStreamEvaluator(Collections.singletonList("/a"));
+        assertThrows(XTriggerException.class, () -> evaluator.evaluate(file));
+    }
+}
@@ -1,11 +1,22 @@
 package org.jenkinsci.plugins.fstrigger.triggers.filecontent;
 
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerDigestAlgorithm;
+import org.jenkinsci.plugins.fstrigger.service.FSTriggerZipCentralDirectory;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
  * @author Gregory Boissinot
@@ -13,6 +24,9 @@ import java.net.URISyntaxException;
 @ExtendWith(MockitoExtension.class)
 class ZIPFileContentTest extends AbstractArchiveFileContentTest {
 
+    @TempDir
+    File folder;
+
     @BeforeEach
     void setUp() {
         type = new ZIPFileContent();
@@ -37,4 +51,29 @@ class ZIPFileContentTest extends AbstractArchiveFileContentTest {
     protected File getNotGoodTypeFile() throws URISyntaxException {
         return new File(this.getClass().getResource("ZIPFileContent/noZIPFile.zip").toURI());
     }
+
+    private static void writeArchive(File file, String comment) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            ZipEntry entry = new ZipEntry("file.txt");
+            entry.setTime(1000000000000L);
+            entry.setComment(comment);
+            out.putNextEntry(entry);
+            out.write(new byte[]{1, 2, 3});
+            out.closeEntry();
+        }
+    }
+
+    @Test
+    void testPollingChangedCentralDirectoryRecorded() throws Exception {
+        File file = new File(folder, "archive.zip");
+        writeArchive(file, "a");
+        initType(file);
+
+        //Only the comment of the entry differs, the entries are the same
+        writeArchive(file, "bb");
+        assertFalse(type.isTriggeringBuild(file, log));
+        String digest = FSTriggerZipCentralDirectory.digest(file, FSTriggerDigestAlgorithm.DEFAULT);
+        assertEquals(digest, ((ZIPFileContentMemory) type.getMemoryInfo()).getCentralDirectoryDigest());
+        assertFalse(type.isTriggeringBuild(file, log));
+    }
 }